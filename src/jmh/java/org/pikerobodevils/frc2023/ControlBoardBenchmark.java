@@ -0,0 +1,23 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.frc2023;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks the input shaping behind {@link ControlBoard#getSpeed()} and getTurn(). */
+@State(Scope.Thread)
+public class ControlBoardBenchmark {
+  double[] inputs = {-1, -0.5, -0.03, 0, 0.02, 0.25, 0.75, 1};
+  int index = 0;
+
+  @Benchmark
+  public double shapeInput() {
+    index = (index + 1) % inputs.length;
+    return ControlBoard.shapeInput(inputs[index]);
+  }
+}
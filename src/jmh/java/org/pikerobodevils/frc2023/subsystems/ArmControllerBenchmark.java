@@ -0,0 +1,51 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.frc2023.subsystems;
+
+import static org.pikerobodevils.frc2023.Constants.ArmConstants.*;
+
+import edu.wpi.first.math.controller.ArmFeedforward;
+import edu.wpi.first.math.controller.ProfiledPIDController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the math in {@link Arm#updatePositionController()}. The arm itself needs the HAL, so
+ * this builds the same controller and feedforward from {@code ArmConstants} and tracks the profile
+ * perfectly, flipping the goal whenever it is reached.
+ */
+@State(Scope.Thread)
+public class ArmControllerBenchmark {
+  ArmFeedforward feedforward;
+  ProfiledPIDController controller;
+  double position;
+
+  @Setup
+  public void setup() {
+    feedforward = new ArmFeedforward(KS, KG, KV, KA);
+    controller = new ProfiledPIDController(KP, KI, KD, CONSTRAINTS);
+    position = Arm.ArmPosition.STOW.valueRadians;
+    controller.reset(position);
+    controller.setGoal(Arm.ArmPosition.SCORE_CUBE_HIGH.valueRadians);
+  }
+
+  @Benchmark
+  public double updatePositionController() {
+    var feedbackOutput = controller.calculate(position);
+    var setpoint = controller.getSetpoint();
+    var feedforwardOutput = feedforward.calculate(position, setpoint.velocity);
+    position = setpoint.position;
+    if (controller.atGoal()) {
+      controller.setGoal(
+          controller.getGoal().position == Arm.ArmPosition.STOW.valueRadians
+              ? Arm.ArmPosition.SCORE_CUBE_HIGH.valueRadians
+              : Arm.ArmPosition.STOW.valueRadians);
+    }
+    return feedbackOutput + feedforwardOutput;
+  }
+}
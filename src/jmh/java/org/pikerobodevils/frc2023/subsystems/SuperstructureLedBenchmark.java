@@ -0,0 +1,82 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.frc2023.subsystems;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pikerobodevils.lib.led.LedEngine;
+import org.pikerobodevils.lib.led.LedPattern;
+import org.pikerobodevils.lib.led.LedSegment;
+import org.pikerobodevils.lib.led.ProgressBarPattern;
+import org.pikerobodevils.lib.led.SolidPattern;
+
+/**
+ * Benchmarks the LED work done every loop in {@link Superstructure#periodic()}. {@code fill} is the
+ * old unconditional 200 pixel fill, the engine benchmarks cover the steady state where nothing
+ * changes, a game piece change, and the arm progress bar moving.
+ */
+@State(Scope.Thread)
+public class SuperstructureLedBenchmark {
+  AddressableLEDBuffer ledBuffer;
+  boolean cone;
+
+  LedEngine engine;
+  LedSegment strip;
+  LedPattern conePattern;
+  LedPattern cubePattern;
+  LedPattern progressPattern;
+  double progress;
+
+  @Setup
+  public void setup() {
+    ledBuffer = new AddressableLEDBuffer(200);
+
+    engine = new LedEngine(200);
+    strip = engine.segment(0, 200, 2);
+    conePattern = new SolidPattern(Color.kYellow);
+    cubePattern = new SolidPattern(Color.kPurple);
+    progressPattern = new ProgressBarPattern(() -> progress, Color.kWhite);
+    strip.setPattern(cubePattern);
+    engine.render(0);
+  }
+
+  @Benchmark
+  public AddressableLEDBuffer fill() {
+    cone = !cone;
+    Color color = cone ? Color.kYellow : Color.kPurple;
+    for (int i = 0; i < ledBuffer.getLength(); i++) {
+      ledBuffer.setLED(i, color);
+    }
+    return ledBuffer;
+  }
+
+  @Benchmark
+  public boolean engineUnchanged() {
+    strip.setPattern(cubePattern);
+    strip.setLayer(1, null);
+    return engine.render(0);
+  }
+
+  @Benchmark
+  public boolean engineGamePieceChange() {
+    cone = !cone;
+    strip.setPattern(cone ? conePattern : cubePattern);
+    strip.setLayer(1, null);
+    return engine.render(0);
+  }
+
+  @Benchmark
+  public boolean engineArmProgress() {
+    progress = progress >= 1 ? 0 : progress + 0.01;
+    strip.setPattern(cubePattern);
+    strip.setLayer(1, progressPattern);
+    return engine.render(0);
+  }
+}
@@ -0,0 +1,78 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.logging;
+
+import java.util.Collections;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pikerobodevils.frc2023.LogConfig;
+import org.tinylog.Level;
+import org.tinylog.core.LogEntry;
+import org.tinylog.runtime.RuntimeProvider;
+import org.tinylog.writers.AbstractFormatPatternWriter;
+
+/**
+ * Benchmarks rendering the {@link LogConfig} pattern, which is the bulk of the work in {@link
+ * DataLogWriter#write} (one render) and {@link DsConsoleWriter#write} (two renders for warnings).
+ * The writers themselves need DataLog and the HAL, so a bare pattern writer is used instead.
+ */
+@State(Scope.Thread)
+public class LogWriterBenchmark {
+  RenderingWriter writer;
+  LogEntry entry;
+
+  static class RenderingWriter extends AbstractFormatPatternWriter {
+    RenderingWriter(Map<String, String> properties) {
+      super(properties);
+    }
+
+    String renderEntry(LogEntry logEntry) {
+      return render(logEntry);
+    }
+
+    @Override
+    public void write(LogEntry logEntry) {}
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  }
+
+  @Setup
+  public void setup() {
+    writer = new RenderingWriter(Collections.singletonMap("format", LogConfig.format));
+    entry =
+        new LogEntry(
+            RuntimeProvider.createTimestamp(),
+            Thread.currentThread(),
+            Collections.emptyMap(),
+            null,
+            null,
+            null,
+            -1,
+            "Spark Max",
+            Level.WARN,
+            "Spark Max ID 7: Failed to run mutator, attempt 1 of 5",
+            null);
+  }
+
+  @Benchmark
+  public String dataLogWrite() {
+    return writer.renderEntry(entry);
+  }
+
+  @Benchmark
+  public void dsConsoleWrite(Blackhole blackhole) {
+    blackhole.consume(writer.renderEntry(entry));
+    blackhole.consume(writer.renderEntry(entry));
+  }
+}
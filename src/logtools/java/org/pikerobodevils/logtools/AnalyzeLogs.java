@@ -0,0 +1,93 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.logtools;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Summarizes a set of match logs in one table.
+ *
+ * <p>Every .wpilog file in the given directories is memory-mapped and analysed in parallel on a
+ * fork-join pool, see {@link MatchStats} for what is measured. Files that can't be read are listed
+ * with the error instead of failing the run.
+ *
+ * <p>Usage, normally through {@code ./gradlew analyzeLogs --args=DIR}: {@code AnalyzeLogs [--jobs
+ * N] FILE|DIRECTORY...}
+ */
+public final class AnalyzeLogs {
+  private AnalyzeLogs() {}
+
+  public static void main(String... args) throws Exception {
+    int jobs = Runtime.getRuntime().availableProcessors();
+    List<Path> inputs = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--jobs")) {
+        jobs = Integer.parseInt(args[++i]);
+      } else {
+        inputs.add(Paths.get(args[i]));
+      }
+    }
+
+    List<Path> logs = findLogs(inputs);
+    if (logs.isEmpty()) {
+      System.err.println("No .wpilog files found in " + inputs);
+      System.exit(1);
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, jobs));
+    List<String> rows;
+    try {
+      rows =
+          pool.submit(
+                  () ->
+                      logs.parallelStream()
+                          .map(AnalyzeLogs::analyze)
+                          .collect(Collectors.toList()))
+              .get();
+    } finally {
+      pool.shutdown();
+    }
+
+    System.out.println(MatchStats.header());
+    rows.forEach(System.out::println);
+  }
+
+  private static List<Path> findLogs(List<Path> inputs) throws IOException {
+    List<Path> logs = new ArrayList<>();
+    for (Path input : inputs) {
+      if (Files.isDirectory(input)) {
+        try (Stream<Path> children = Files.list(input)) {
+          children
+              .filter(path -> path.getFileName().toString().endsWith(".wpilog"))
+              .sorted()
+              .forEach(logs::add);
+        }
+      } else {
+        logs.add(input);
+      }
+    }
+    return logs;
+  }
+
+  private static String analyze(Path log) {
+    String name = log.getFileName().toString();
+    try {
+      return MatchStats.analyze(log).toRow(name);
+    } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+      return String.format(Locale.ROOT, "%-36s %s", name, e.getMessage());
+    }
+  }
+}
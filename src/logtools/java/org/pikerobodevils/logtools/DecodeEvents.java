@@ -0,0 +1,120 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.logtools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.pikerobodevils.lib.logging.EventLog;
+
+/**
+ * Prints the structured events in a .wpilog file as text, one line per event.
+ *
+ * <p>Each {@link EventLog} entry is decoded with the schema in its metadata, or with the schema
+ * file written next to the logs if given. Name ids are replaced with the names logged to {@code
+ * Events/Names}.
+ *
+ * <p>Usage, normally through {@code ./gradlew decodeEvents --args=FILE}: {@code DecodeEvents
+ * [--schema events-schema.json] FILE}
+ */
+public final class DecodeEvents {
+  private static final ObjectMapper kMapper = new ObjectMapper();
+
+  private DecodeEvents() {}
+
+  public static void main(String... args) throws Exception {
+    String schemaFile = null;
+    String log = null;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--schema")) {
+        schemaFile = args[++i];
+      } else {
+        log = args[i];
+      }
+    }
+    if (log == null) {
+      System.err.println("Usage: DecodeEvents [--schema events-schema.json] FILE");
+      System.exit(1);
+    }
+
+    // Schemas by type name, from the file first and then from each entry's metadata
+    Map<String, JsonNode> schemas = new HashMap<>();
+    if (schemaFile != null) {
+      for (JsonNode schema : kMapper.readTree(Files.readAllBytes(Paths.get(schemaFile)))) {
+        schemas.put(schema.get("name").asText(), schema);
+      }
+    }
+
+    DataLogReader reader = new DataLogReader(log);
+    if (!reader.isValid()) {
+      throw new IOException(log + " is not a wpilog file");
+    }
+
+    Map<Integer, JsonNode> entries = new HashMap<>();
+    int namesEntry = -1;
+    Map<Integer, String> names = new HashMap<>();
+    for (DataLogRecord record : reader) {
+      if (record.isStart()) {
+        DataLogRecord.StartRecordData start = record.getStartData();
+        if (start.name.equals(EventLog.kNamesEntry)) {
+          namesEntry = start.entry;
+        } else if (start.type.equals(EventLog.kEntryType)) {
+          String name = start.name.substring(EventLog.kPrefix.length());
+          JsonNode schema = schemas.get(name);
+          if (schema == null) {
+            schema = kMapper.readTree(start.metadata);
+            schemas.put(name, schema);
+          }
+          entries.put(start.entry, schema);
+        }
+      } else if (record.isFinish()) {
+        entries.remove(record.getFinishEntry());
+      } else if (!record.isControl()) {
+        if (record.getEntry() == namesEntry) {
+          String[] idAndName = record.getString().split(":", 2);
+          names.put(Integer.parseInt(idAndName[0]), idAndName[1]);
+        }
+        JsonNode schema = entries.get(record.getEntry());
+        if (schema != null) {
+          System.out.println(decode(record.getTimestamp(), record.getRaw(), schema, names));
+        }
+      }
+    }
+  }
+
+  private static String decode(
+      long timestamp, byte[] data, JsonNode schema, Map<Integer, String> names) {
+    ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    // The type id in the record is only needed when records are read without their entry
+    buffer.getShort();
+    int deviceId = buffer.getShort() & 0xFFFF;
+    StringBuilder line = new StringBuilder();
+    line.append(String.format(Locale.ROOT, "%10.6f ", timestamp / 1e6));
+    line.append(schema.get("name").asText());
+    if ("name".equals(schema.path("device").asText())) {
+      line.append(' ').append(names.getOrDefault(deviceId, "#" + deviceId));
+    } else {
+      line.append(" device=").append(deviceId);
+    }
+    for (JsonNode field : schema.get("fields")) {
+      if (buffer.remaining() < 8) {
+        line.append(" (truncated)");
+        break;
+      }
+      line.append(' ').append(field.asText()).append('=').append(buffer.getLong());
+    }
+    return line.toString();
+  }
+}
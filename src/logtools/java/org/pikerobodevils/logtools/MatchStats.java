@@ -0,0 +1,218 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.logtools;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+import org.pikerobodevils.frc2023.Constants.IntakeConstants;
+import org.pikerobodevils.lib.InputSnapshot;
+import org.pikerobodevils.lib.logging.WpiLogIndex;
+import org.pikerobodevils.lib.profiling.Histogram;
+
+/**
+ * Statistics of one match log.
+ *
+ * <ul>
+ *   <li>Loop period distribution and overruns, from the {@link InputSnapshot} loop timestamps
+ *   <li>Time enabled, from the driver station data
+ *   <li>Brownouts and the lowest battery voltage
+ *   <li>Arm tracking error, setpoint against position while enabled, from the arm's {@code @Log}
+ *       entries
+ *   <li>Peak intake current and the time spent above the stall detection current
+ *   <li>Number of Spark Max fault events
+ * </ul>
+ *
+ * <p>Statistics whose entries are not in the log are NaN.
+ */
+public class MatchStats {
+  private static final long kPeriodMicros = 20_000;
+  // Allow for scheduling jitter before calling a loop an overrun
+  private static final long kOverrunMicros = kPeriodMicros + 1_000;
+
+  private static final String kEnabled = "DS:enabled";
+  private static final String kBrownout = InputSnapshot.kLogPrefix + "Robot/Brownout";
+  private static final String kBatteryVoltage = InputSnapshot.kLogPrefix + "Robot/BatteryVoltage";
+  private static final String kArmPosition = "NT:/Shuffleboard/Arm/Position";
+  private static final String kArmSetpoint = "NT:/Shuffleboard/Arm/Setpoint Position";
+  private static final String kIntakeCurrent = InputSnapshot.kLogPrefix + "Intake/Current";
+  private static final String kFaultEvents = "SparkMaxMonitor/FaultEvents";
+
+  private static final Set<String> kEntries =
+      Set.of(
+          InputSnapshot.kLoopEntry,
+          kEnabled,
+          kBrownout,
+          kBatteryVoltage,
+          kArmPosition,
+          kArmSetpoint,
+          kIntakeCurrent,
+          kFaultEvents);
+
+  private final Histogram loopPeriods = new Histogram(100, 2000);
+  private long overruns;
+  private double enabledSeconds = Double.NaN;
+  private double brownouts = Double.NaN;
+  private double minBatteryVoltage = Double.NaN;
+  private double armRmsError = Double.NaN;
+  private double armMaxError = Double.NaN;
+  private double intakePeakCurrent = Double.NaN;
+  private double intakeStallSeconds = Double.NaN;
+  private double faultEvents = Double.NaN;
+
+  private MatchStats() {}
+
+  /**
+   * Read a log and compute its statistics.
+   *
+   * @param log path to the .wpilog file
+   * @return the statistics
+   * @throws IOException if the file can't be read
+   */
+  public static MatchStats analyze(Path log) throws IOException {
+    WpiLogIndex index = WpiLogIndex.load(log.toString(), kEntries::contains);
+    MatchStats stats = new MatchStats();
+    WpiLogIndex.Series loops = index.get(InputSnapshot.kLoopEntry);
+    WpiLogIndex.Series enabled = index.get(kEnabled);
+
+    if (loops != null) {
+      for (int i = 1; i < loops.size(); i++) {
+        long period = loops.getTimestamp(i) - loops.getTimestamp(i - 1);
+        stats.loopPeriods.record(period);
+        if (period > kOverrunMicros) {
+          stats.overruns++;
+        }
+      }
+    }
+
+    if (enabled != null) {
+      long enabledMicros = 0;
+      for (int i = 0; i + 1 < enabled.size(); i++) {
+        if (enabled.getValue(i) != 0) {
+          enabledMicros += enabled.getTimestamp(i + 1) - enabled.getTimestamp(i);
+        }
+      }
+      stats.enabledSeconds = enabledMicros / 1e6;
+    }
+
+    WpiLogIndex.Series brownout = index.get(kBrownout);
+    if (brownout != null) {
+      int count = 0;
+      for (int i = 0; i < brownout.size(); i++) {
+        if (brownout.getValue(i) != 0 && (i == 0 || brownout.getValue(i - 1) == 0)) {
+          count++;
+        }
+      }
+      stats.brownouts = count;
+    }
+
+    WpiLogIndex.Series voltage = index.get(kBatteryVoltage);
+    if (voltage != null && voltage.size() > 0) {
+      double min = Double.POSITIVE_INFINITY;
+      for (int i = 0; i < voltage.size(); i++) {
+        min = Math.min(min, voltage.getValue(i));
+      }
+      stats.minBatteryVoltage = min;
+    }
+
+    stats.analyzeArm(index.get(kArmPosition), index.get(kArmSetpoint), loops, enabled);
+
+    WpiLogIndex.Series current = index.get(kIntakeCurrent);
+    if (current != null && current.size() > 0) {
+      double peak = 0;
+      long stallMicros = 0;
+      for (int i = 0; i < current.size(); i++) {
+        peak = Math.max(peak, current.getValue(i));
+        // Inputs are logged on change, so each value holds until the next
+        if (i + 1 < current.size()
+            && current.getValue(i) > IntakeConstants.INTAKE_STALL_DETECTION) {
+          stallMicros += current.getTimestamp(i + 1) - current.getTimestamp(i);
+        }
+      }
+      stats.intakePeakCurrent = peak;
+      stats.intakeStallSeconds = stallMicros / 1e6;
+    }
+
+    WpiLogIndex.Series faults = index.get(kFaultEvents);
+    stats.faultEvents = faults == null ? 0 : faults.size();
+    return stats;
+  }
+
+  private void analyzeArm(
+      WpiLogIndex.Series position,
+      WpiLogIndex.Series setpoint,
+      WpiLogIndex.Series loops,
+      WpiLogIndex.Series enabled) {
+    if (position == null || setpoint == null) {
+      return;
+    }
+    // Sample once per loop where possible, since the entries are only logged when they change
+    WpiLogIndex.Series times = loops != null ? loops : position;
+    double sumSquares = 0;
+    double max = 0;
+    int count = 0;
+    for (int i = 0; i < times.size(); i++) {
+      long timestamp = times.getTimestamp(i);
+      if (enabled == null || enabled.valueAt(timestamp, 0) == 0) {
+        continue;
+      }
+      double error =
+          Math.abs(
+              setpoint.valueAt(timestamp, Double.NaN) - position.valueAt(timestamp, Double.NaN));
+      if (Double.isNaN(error)) {
+        continue;
+      }
+      sumSquares += error * error;
+      max = Math.max(max, error);
+      count++;
+    }
+    if (count > 0) {
+      armRmsError = Math.sqrt(sumSquares / count);
+      armMaxError = max;
+    }
+  }
+
+  static String header() {
+    return String.format(
+        Locale.ROOT,
+        "%-36s %7s %7s %7s %7s %7s %8s %9s %6s %9s %9s %8s %8s %6s",
+        "Log",
+        "Enabled",
+        "Loops",
+        "p50 ms",
+        "p99 ms",
+        "Max ms",
+        "Overruns",
+        "Brownouts",
+        "Min V",
+        "Arm RMS",
+        "Arm Max",
+        "Intake A",
+        "Stall s",
+        "Faults");
+  }
+
+  String toRow(String name) {
+    return String.format(
+        Locale.ROOT,
+        "%-36s %7.1f %7d %7.2f %7.2f %7.2f %8d %9.0f %6.2f %9.2f %9.2f %8.1f %8.2f %6.0f",
+        name,
+        enabledSeconds,
+        loopPeriods.getCount(),
+        loopPeriods.getPercentile(0.5) / 1000.0,
+        loopPeriods.getPercentile(0.99) / 1000.0,
+        loopPeriods.getMax() / 1000.0,
+        overruns,
+        brownouts,
+        minBatteryVoltage,
+        armRmsError,
+        armMaxError,
+        intakePeakCurrent,
+        intakeStallSeconds,
+        faultEvents);
+  }
+}
@@ -7,6 +7,7 @@ package org.pikerobodevils.frc2023;
 
 import com.revrobotics.CANSparkMax.IdleMode;
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.kinematics.DifferentialDriveKinematics;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.Filesystem;
@@ -37,6 +38,31 @@ public final class Constants {
     public static final IdleMode IDLE_MODE = IdleMode.kCoast;
 
     public static final int CURRENT_LIMIT = 50;
+
+    // Kitbot values, not characterized on this robot. Autos that follow trajectories with them are
+    // only offered in simulation.
+    public static final double WHEEL_DIAMETER = Units.inchesToMeters(6);
+    public static final double GEAR_RATIO = 10.71;
+    public static final double METERS_PER_MOTOR_ROTATION = Math.PI * WHEEL_DIAMETER / GEAR_RATIO;
+    public static final double TRACK_WIDTH = Units.inchesToMeters(22);
+    public static final DifferentialDriveKinematics KINEMATICS =
+        new DifferentialDriveKinematics(TRACK_WIDTH);
+
+    public static final double KS = 0.15;
+    public static final double KV = 2.8;
+    public static final double KA = 0.4;
+    public static final double KP_VELOCITY = 1;
+
+    public static final double RAMSETE_B = 2;
+    public static final double RAMSETE_ZETA = 0.7;
+
+    public static final double MAX_TRAJECTORY_VELOCITY = 2; // m / s
+    public static final double MAX_TRAJECTORY_ACCEL = 1.5; // m / s / s
+
+    public static final byte NAVX_UPDATE_RATE_HZ = (byte) 200;
+    // Seconds
+    public static final double PITCH_FILTER_TIME_CONSTANT = 0.01;
+    public static final double PITCH_RATE_FILTER_TIME_CONSTANT = 0.03;
   }
 
   public static class AutoBalanceConstants {
@@ -100,6 +126,19 @@ public final class Constants {
     public static final double MASS = Units.lbsToKilograms(15);
 
     public static final double MOI_KG_M_SQUARED = MASS * (Math.pow(COM_DISTANCE, 2));
+
+    // Use the Kalman filter estimate for position and velocity instead of the raw encoders.
+    // Off until the standard deviations and encoder signs have been checked in sim and on the arm.
+    public static final boolean USE_STATE_ESTIMATOR = false;
+    // Standard deviations for the estimator
+    public static final double MODEL_POSITION_STD_DEV = 0.015; // rad
+    public static final double MODEL_VELOCITY_STD_DEV = 0.17; // rad / s
+    public static final double ABSOLUTE_ENCODER_STD_DEV = Units.degreesToRadians(0.5); // rad
+    public static final double QUAD_ENCODER_STD_DEV = RAD_PER_QUAD_TICK; // rad
+
+    // Run the position controller on its own Notifier instead of the 20 ms command loop.
+    public static final boolean USE_CONTROL_NOTIFIER = false;
+    public static final double CONTROL_LOOP_PERIOD = 1.0 / 200;
   }
 
   public static class IntakeConstants {
@@ -119,6 +158,11 @@ public final class Constants {
     public static final double INTAKE_STALL_DETECTION = 15; // Amps
   }
 
+  public static class LedConstants {
+    public static final int PORT = 0;
+    public static final int LENGTH = 200;
+  }
+
   public static class ExtensionConstants {
     public static final int UPPER_FORWARD = 2;
     public static final int UPPER_REVERSE = 3;
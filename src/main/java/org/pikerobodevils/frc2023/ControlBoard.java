@@ -16,12 +16,20 @@ public class ControlBoard {
   public final CommandXboxController operator = new CommandXboxController(OPERATOR_PORT);
 
   public double getSpeed() {
-    double leftY = -driver.getLeftY();
-    return Math.signum(leftY) * Math.pow(MathUtil.applyDeadband(leftY, .04), 2);
+    return shapeInput(-driver.getLeftY());
   }
 
   public double getTurn() {
-    double rightX = -driver.getRightX();
-    return Math.signum(rightX) * Math.pow(MathUtil.applyDeadband(rightX, .04), 2);
+    return shapeInput(-driver.getRightX());
+  }
+
+  /**
+   * Applies a deadband and squares a joystick input, keeping its sign.
+   *
+   * @param value raw joystick value in the range [-1, 1]
+   * @return shaped value in the range [-1, 1]
+   */
+  public static double shapeInput(double value) {
+    return Math.signum(value) * Math.pow(MathUtil.applyDeadband(value, .04), 2);
   }
 }
@@ -5,12 +5,10 @@
 
 package org.pikerobodevils.frc2023;
 
-import edu.wpi.first.wpilibj2.command.CommandScheduler;
-import org.tinylog.Logger;
 import org.tinylog.configuration.Configuration;
 
 public class LogConfig {
-  private static final String format =
+  public static final String format =
       "{date:yyyy-MM-dd HH:mm:ss} - [{tag: none}] - {level}: {message}";
 
   private static final String consoleLevel = "debug";
@@ -19,24 +17,32 @@ public class LogConfig {
 
   private static final String dataLogEntryKey = "messages";
 
+  private static final String dataLogCapacity = "1024";
+
+  private static final String dataLogOverflow = "dropOldest";
+
+  // DS console entries: repeats within the window are collapsed, then each tag may send a burst of
+  // 5 and 2 per second. Entries that only go to stdout are not throttled.
+  private static final String consoleWindow = "1";
+
+  private static final String consoleRate = "2";
+
+  private static final String consoleBurst = "5";
+
   public static void config() {
     Configuration.set("writer1", "org.pikerobodevils.lib.logging.DataLogWriter");
     Configuration.set("writer1.level", dataLogLevel);
     Configuration.set("writer1.format", format);
+    Configuration.set("writer1.async", "true");
+    Configuration.set("writer1.capacity", dataLogCapacity);
+    Configuration.set("writer1.overflow", dataLogOverflow);
 
     Configuration.set("writer2", "org.pikerobodevils.lib.logging.DsConsoleWriter");
     Configuration.set("writer2.level", consoleLevel);
     Configuration.set("writer2.format", format);
     Configuration.set("writer2.entryKey", dataLogEntryKey);
-
-    CommandScheduler.getInstance()
-        .onCommandFinish(
-            (cmd) -> Logger.tag("Scheduler").trace("Finish Command: {}", cmd.getName()));
-    CommandScheduler.getInstance()
-        .onCommandInitialize(
-            (cmd) -> Logger.tag("Scheduler").trace("Initialize Command: {}", cmd.getName()));
-    CommandScheduler.getInstance()
-        .onCommandInterrupt(
-            (cmd) -> Logger.tag("Scheduler").trace("Interrupted Command: {}", cmd.getName()));
+    Configuration.set("writer2.window", consoleWindow);
+    Configuration.set("writer2.rate", consoleRate);
+    Configuration.set("writer2.burst", consoleBurst);
   }
 }
@@ -10,8 +10,16 @@ import edu.wpi.first.wpilibj.*;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
-import io.github.oblarg.oblog.Logger;
+import java.io.IOException;
+import java.nio.file.Paths;
+import org.pikerobodevils.lib.InputSnapshot;
 import org.pikerobodevils.lib.LogUtils;
+import org.pikerobodevils.lib.logging.EventLog;
+import org.pikerobodevils.lib.logging.LogLevels;
+import org.pikerobodevils.lib.profiling.CommandProfiler;
+import org.pikerobodevils.lib.profiling.LoopProfiler;
+import org.pikerobodevils.lib.profiling.RuntimeMonitor;
+import org.pikerobodevils.lib.telemetry.Telemetry;
 import org.pikerobodevils.lib.vendor.SparkMax;
 
 public class Robot extends TimedRobot {
@@ -19,6 +27,19 @@ public class Robot extends TimedRobot {
 
   private RobotContainer m_robotContainer;
 
+  private final LoopProfiler.Section m_inputsSection =
+      LoopProfiler.section("InputSnapshot.update()");
+  private final LoopProfiler.Section m_schedulerSection =
+      LoopProfiler.section("CommandScheduler.run()");
+  private final LoopProfiler.Section m_robotPeriodicSection =
+      LoopProfiler.section("robotPeriodic()");
+
+  // Logged for the log analyzer, nothing on the robot reads them
+  private final InputSnapshot.DoubleInput m_batteryVoltageInput =
+      InputSnapshot.registerDouble("Robot/BatteryVoltage", RobotController::getBatteryVoltage);
+  private final InputSnapshot.BooleanInput m_brownoutInput =
+      InputSnapshot.registerBoolean("Robot/Brownout", RobotController::isBrownedOut);
+
   @Override
   public void robotInit() {
     if (isReal()) {
@@ -27,6 +48,7 @@ public class Robot extends TimedRobot {
       DataLogManager.start(Constants.SIM_LOG_DIR);
     }
     DriverStation.startDataLog(DataLogManager.getLog());
+    InputSnapshot.startLogging(DataLogManager.getLog());
     LogConfig.config();
 
     SmartDashboard.putData(CommandScheduler.getInstance());
@@ -38,20 +60,67 @@ public class Robot extends TimedRobot {
     LogUtils.logSoftwareVersionMetadata();
     LogUtils.logManifestMetadata(this);
     m_robotContainer = new RobotContainer();
+    SparkMax.configureAll();
     SparkMax.burnFlashInSync();
+    LoopProfiler.start();
+    CommandProfiler.start();
+    RuntimeMonitor.start();
+    // After everything that registers event types or log tags
+    writeEventSchema();
+    LogLevels.start();
+  }
+
+  /** Write the structured event schema next to the logs, for decoding them offline. */
+  private static void writeEventSchema() {
+    try {
+      EventLog.writeSchema(Paths.get(DataLogManager.getLogDir(), "events-schema.json"));
+    } catch (IOException e) {
+      DriverStation.reportWarning("Failed to write event schema: " + e.getMessage(), false);
+    }
+  }
+
+  public RobotContainer getRobotContainer() {
+    return m_robotContainer;
+  }
+
+  /**
+   * Returns the autonomous command scheduled by the last autonomousInit.
+   *
+   * @return the command, or null if autonomous has not run
+   */
+  public Command getScheduledAutonomousCommand() {
+    return m_autonomousCommand;
   }
 
   @Override
   public void robotPeriodic() {
+    m_robotPeriodicSection.start();
+    m_inputsSection.start();
+    InputSnapshot.update();
+    m_inputsSection.stop();
+
+    m_schedulerSection.start();
     CommandScheduler.getInstance().run();
-    Logger.updateEntries();
+    m_schedulerSection.stop();
+
+    Telemetry.update();
+    LogLevels.periodic();
+    m_robotPeriodicSection.stop();
+
+    LoopProfiler.periodic();
+    RuntimeMonitor.periodic();
   }
 
   @Override
-  public void disabledInit() {}
+  public void disabledInit() {
+    CommandProfiler.logSummary();
+    RuntimeMonitor.logSummary();
+  }
 
   @Override
-  public void disabledPeriodic() {}
+  public void disabledPeriodic() {
+    m_robotContainer.disabledPeriodic();
+  }
 
   @Override
   public void autonomousInit() {
@@ -6,17 +6,22 @@
 package org.pikerobodevils.frc2023;
 
 import com.revrobotics.CANSparkMax;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
-import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.simulation.BatterySim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
 import edu.wpi.first.wpilibj2.command.Command;
-import edu.wpi.first.wpilibj2.command.CommandBase;
 import edu.wpi.first.wpilibj2.command.Commands;
-import io.github.oblarg.oblog.Logger;
 import org.pikerobodevils.frc2023.commands.Autos;
 import org.pikerobodevils.frc2023.simulation.ArmSim;
+import org.pikerobodevils.frc2023.simulation.DrivetrainSim;
+import org.pikerobodevils.frc2023.simulation.IntakeSim;
+import org.pikerobodevils.frc2023.simulation.PneumaticsSim;
 import org.pikerobodevils.frc2023.subsystems.*;
+import org.pikerobodevils.lib.AutoRegistry;
+import org.pikerobodevils.lib.telemetry.Telemetry;
 
 public class RobotContainer {
   public final Drivetrain drivetrain = new Drivetrain();
@@ -32,9 +37,13 @@ public class RobotContainer {
 
   private final Pneumatics pneumatics = new Pneumatics();
 
+  private final DrivetrainSim drivetrainSim = new DrivetrainSim();
+  private final PneumaticsSim pneumaticsSim = new PneumaticsSim(pneumatics);
+  private final IntakeSim intakeSim = new IntakeSim(pneumaticsSim);
+
   Autos autos = new Autos(drivetrain, superstructure);
   private final ShuffleboardTab driverTab = Shuffleboard.getTab("Driver Dashboard");
-  SendableChooser<CommandBase> autoChooser = new SendableChooser<>();
+  AutoRegistry autoRegistry = new AutoRegistry();
 
   public RobotContainer() {
     /**
@@ -51,23 +60,26 @@ public class RobotContainer {
       arm.setVoltage(12 * controlboard.operator.getLeftX());
     }));*/
     configureBindings();
-    Logger.configureLoggingAndConfig(this, false);
-
-    autoChooser.setDefaultOption("No auto", Commands.none());
-    autoChooser.addOption("Drive Back", autos.driveBackAuto());
-    autoChooser.addOption("Score low cube only", autos.scoreLowCube());
-    autoChooser.addOption("Score mid cube only", autos.scoreMidCube());
-    autoChooser.addOption("Score high cube only", autos.scoreHighCube());
-    autoChooser.addOption("Low cube drive back", autos.scoreLowCubeDriveBack());
-    autoChooser.addOption("Mid cube drive back", autos.scoreMidCubeDriveBack());
-    autoChooser.addOption("High cube drive back", autos.scoreHighCubeDriveBack());
-    autoChooser.addOption("Low cube balance", autos.scoreLowThenBalance());
-    autoChooser.addOption("Mid cube balance", autos.scoreMidThenBalance());
-    autoChooser.addOption("High cube balance", autos.scoreHighThenBalance());
-    autoChooser.addOption("Auto Balance Forwards", autos.autoBalanceForwards());
-    autoChooser.addOption("Auto Balance Backwards", autos.autoBalanceBackwards());
-
-    driverTab.add("Auto", autoChooser).withSize(2, 1);
+    Telemetry.bind(this);
+
+    autoRegistry.setDefaultOption("No auto", Commands::none);
+    autoRegistry.addOption("Drive Back", autos::driveBackAuto);
+    if (RobotBase.isSimulation()) {
+      autoRegistry.addOption("Drive Back (Trajectory)", autos::driveBackTrajectoryAuto);
+    }
+    autoRegistry.addOption("Score low cube only", autos::scoreLowCube);
+    autoRegistry.addOption("Score mid cube only", autos::scoreMidCube);
+    autoRegistry.addOption("Score high cube only", autos::scoreHighCube);
+    autoRegistry.addOption("Low cube drive back", autos::scoreLowCubeDriveBack);
+    autoRegistry.addOption("Mid cube drive back", autos::scoreMidCubeDriveBack);
+    autoRegistry.addOption("High cube drive back", autos::scoreHighCubeDriveBack);
+    autoRegistry.addOption("Low cube balance", autos::scoreLowThenBalance);
+    autoRegistry.addOption("Mid cube balance", autos::scoreMidThenBalance);
+    autoRegistry.addOption("High cube balance", autos::scoreHighThenBalance);
+    autoRegistry.addOption("Auto Balance Forwards", autos::autoBalanceForwards);
+    autoRegistry.addOption("Auto Balance Backwards", autos::autoBalanceBackwards);
+
+    driverTab.add("Auto", autoRegistry.getChooser()).withSize(2, 1);
   }
 
   private void configureBindings() {
@@ -129,9 +141,26 @@ public class RobotContainer {
 
   public void simulationPeriodic() {
     armSim.update();
+    drivetrainSim.update();
+    pneumaticsSim.update();
+    intakeSim.update();
+    RoboRioSim.setVInVoltage(
+        BatterySim.calculateDefaultBatteryLoadedVoltage(
+            armSim.getCurrentDrawAmps(),
+            drivetrainSim.getCurrentDrawAmps(),
+            intakeSim.getCurrentDrawAmps(),
+            pneumaticsSim.getCurrentDrawAmps()));
+  }
+
+  public void disabledPeriodic() {
+    autoRegistry.disabledPeriodic();
+  }
+
+  public AutoRegistry getAutoRegistry() {
+    return autoRegistry;
   }
 
   public Command getAutonomousCommand() {
-    return autoChooser.getSelected();
+    return autoRegistry.getSelected();
   }
 }
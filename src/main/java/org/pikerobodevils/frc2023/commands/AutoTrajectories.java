@@ -0,0 +1,58 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.frc2023.commands;
+
+import static org.pikerobodevils.frc2023.Constants.DrivetrainConstants.*;
+
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import edu.wpi.first.math.trajectory.constraint.DifferentialDriveVoltageConstraint;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Definitions of every auto trajectory. These are generated at build time by the {@code
+ * generateTrajectories} Gradle task into {@code src/main/deploy/trajectories}, and loaded on the
+ * robot with {@link org.pikerobodevils.lib.trajectory.MappedTrajectory#load(String)}. Nothing here
+ * runs on the robot.
+ */
+public final class AutoTrajectories {
+  public static final String DRIVE_BACK = "DriveBack";
+
+  private AutoTrajectories() {}
+
+  /**
+   * Generate every trajectory. Must only use WPIMath, since it runs without the HAL.
+   *
+   * @return trajectories by name
+   */
+  public static Map<String, Trajectory> generateAll() {
+    var voltageConstraint =
+        new DifferentialDriveVoltageConstraint(
+            new SimpleMotorFeedforward(KS, KV, KA), KINEMATICS, 10);
+    var reversedConfig =
+        new TrajectoryConfig(MAX_TRAJECTORY_VELOCITY, MAX_TRAJECTORY_ACCEL)
+            .setKinematics(KINEMATICS)
+            .addConstraint(voltageConstraint)
+            .setReversed(true);
+
+    Map<String, Trajectory> trajectories = new LinkedHashMap<>();
+    // Out of the community from the grid, same distance as the open loop drive back
+    trajectories.put(
+        DRIVE_BACK,
+        TrajectoryGenerator.generateTrajectory(
+            new Pose2d(0, 0, new Rotation2d()),
+            List.of(),
+            new Pose2d(-3.8, 0, new Rotation2d()),
+            reversedConfig));
+    return trajectories;
+  }
+}
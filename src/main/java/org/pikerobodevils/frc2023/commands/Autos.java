@@ -8,8 +8,11 @@ package org.pikerobodevils.frc2023.commands;
 import edu.wpi.first.math.filter.Debouncer;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import edu.wpi.first.wpilibj2.command.Commands;
+import java.io.IOException;
 import org.pikerobodevils.frc2023.subsystems.Drivetrain;
 import org.pikerobodevils.frc2023.subsystems.Superstructure;
+import org.pikerobodevils.lib.trajectory.MappedTrajectory;
+import org.tinylog.Logger;
 
 public final class Autos {
   Drivetrain drivetrain;
@@ -24,6 +27,25 @@ public final class Autos {
     return drivetrain.setLeftRightVoltageCommand(-3, -3).withTimeout(3.6);
   }
 
+  public CommandBase driveBackTrajectoryAuto() {
+    return followTrajectory(AutoTrajectories.DRIVE_BACK);
+  }
+
+  /**
+   * Follow a trajectory generated at build time. Loading only maps the file.
+   *
+   * @param name name of the trajectory in {@link AutoTrajectories}
+   * @return the command, or a command that does nothing if the trajectory could not be loaded
+   */
+  public CommandBase followTrajectory(String name) {
+    try {
+      return drivetrain.driveTrajectoryCommand(MappedTrajectory.load(name));
+    } catch (IOException e) {
+      Logger.tag("Autos").error(e, "Unable to load trajectory {}", name);
+      return Commands.none();
+    }
+  }
+
   public CommandBase scoreLowCube() {
     return superstructure
         .scoreLowPosition()
@@ -45,4 +45,8 @@ public class ArmSim {
     quadEncoderSim.setRate(sim.getVelocityRadPerSec());
     SmartDashboard.putNumber("Current", sim.getCurrentDrawAmps());
   }
+
+  public double getCurrentDrawAmps() {
+    return sim.getCurrentDrawAmps();
+  }
 }
@@ -0,0 +1,79 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.frc2023.simulation;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.util.Units;
+
+/**
+ * Tilting charge station along the field x axis, measured from the robot's starting pose.
+ *
+ * <p>The platform tips towards whichever side of its pivot the robot is on, with a first order lag,
+ * and stays where it is when the robot leaves. While on the platform the robot pitches with it.
+ * Pitch follows the robot's convention, positive when the robot is tilted backwards.
+ */
+public class ChargeStationSim {
+  private static final double kMaxAngle = Units.degreesToRadians(15);
+  // Distance from the pivot over which the robot's weight tips the platform fully
+  private static final double kTipDistance = 0.15;
+  private static final double kTimeConstant = 0.3;
+
+  private final double m_centerX;
+  private final double m_halfLength;
+
+  // Positive when the +x edge is down
+  private double m_angle;
+
+  /**
+   * Create a charge station.
+   *
+   * @param centerX x of the pivot in meters
+   * @param halfLength distance from the pivot to either edge in meters, including ramps
+   * @param startX x of the robot at the start, the platform starts tipped towards it
+   */
+  public ChargeStationSim(double centerX, double halfLength, double startX) {
+    m_centerX = centerX;
+    m_halfLength = halfLength;
+    m_angle = Math.copySign(kMaxAngle, startX - centerX);
+  }
+
+  /**
+   * Advance the platform.
+   *
+   * @param robotX x of the robot in meters
+   * @param dtSeconds time step
+   */
+  public void update(double robotX, double dtSeconds) {
+    if (!isOnStation(robotX)) {
+      return;
+    }
+    double target = kMaxAngle * MathUtil.clamp((robotX - m_centerX) / kTipDistance, -1, 1);
+    m_angle += (target - m_angle) * dtSeconds / (kTimeConstant + dtSeconds);
+  }
+
+  public boolean isOnStation(double robotX) {
+    return Math.abs(robotX - m_centerX) <= m_halfLength;
+  }
+
+  /**
+   * Returns the robot pitch for a robot facing +x.
+   *
+   * @param robotX x of the robot in meters
+   * @return pitch in radians, 0 when off the station
+   */
+  public double getRobotPitch(double robotX) {
+    return isOnStation(robotX) ? -m_angle : 0;
+  }
+
+  /**
+   * Returns the slope of the platform.
+   *
+   * @return angle in radians, positive when the +x edge is down
+   */
+  public double getAngle() {
+    return m_angle;
+  }
+}
@@ -0,0 +1,93 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.frc2023.simulation;
+
+import static org.pikerobodevils.frc2023.Constants.DrivetrainConstants.*;
+
+import edu.wpi.first.hal.SimDouble;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.SPI;
+import edu.wpi.first.wpilibj.simulation.DifferentialDrivetrainSim;
+import edu.wpi.first.wpilibj.simulation.SimDeviceSim;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Simulates the drivetrain, the charge station it drives onto, and the navX. Wheel positions and
+ * velocities are written to the leader Spark Maxes, heading and pitch to the navX.
+ */
+public class DrivetrainSim {
+  private static final DCMotor kGearbox = DCMotor.getNEO(3);
+  private static final double kMassKg = Units.lbsToKilograms(120);
+  private static final double kMoiKgMetersSquared = 6;
+
+  // Charge station behind the starting pose, as seen from the grid
+  private static final double kStationCenterX = -2.4;
+  private static final double kStationHalfLength = 0.97;
+
+  private final DifferentialDrivetrainSim sim =
+      new DifferentialDrivetrainSim(
+          kGearbox,
+          GEAR_RATIO,
+          kMoiKgMetersSquared,
+          kMassKg,
+          WHEEL_DIAMETER / 2,
+          TRACK_WIDTH,
+          null);
+  private final ChargeStationSim chargeStation =
+      new ChargeStationSim(kStationCenterX, kStationHalfLength, 0);
+
+  private final SparkMaxSim leftLeader = new SparkMaxSim(LEFT_LEADER_ID);
+  private final SparkMaxSim rightLeader = new SparkMaxSim(RIGHT_LEADER_ID);
+
+  private final SimDouble navXYaw;
+  private final SimDouble navXPitch;
+
+  public DrivetrainSim() {
+    SimDeviceSim navX = new SimDeviceSim("navX-Sensor", SPI.Port.kMXP.value);
+    navXYaw = navX.getDouble("Yaw");
+    navXPitch = navX.getDouble("Pitch");
+  }
+
+  public void update() {
+    double x = sim.getPose().getX();
+    chargeStation.update(x, .02);
+
+    // Gravity along the platform, as a voltage on each side
+    double slope = chargeStation.isOnStation(x) ? chargeStation.getAngle() : 0;
+    double force = kMassKg * 9.81 * Math.sin(slope) * sim.getHeading().getCos();
+    double torquePerSide = force / 2 * (WHEEL_DIAMETER / 2) / GEAR_RATIO;
+    double gravityVolts = torquePerSide / kGearbox.KtNMPerAmp * kGearbox.rOhms;
+
+    // Inversion is applied on the controller, so positive output is forwards on both sides
+    double battery = RobotController.getBatteryVoltage();
+    sim.setInputs(
+        leftLeader.getAppliedOutput() * battery + gravityVolts,
+        rightLeader.getAppliedOutput() * battery + gravityVolts);
+    sim.update(.02);
+
+    leftLeader.setPosition(sim.getLeftPositionMeters() / METERS_PER_MOTOR_ROTATION);
+    leftLeader.setVelocity(sim.getLeftVelocityMetersPerSecond() / METERS_PER_MOTOR_ROTATION * 60);
+    rightLeader.setPosition(sim.getRightPositionMeters() / METERS_PER_MOTOR_ROTATION);
+    rightLeader.setVelocity(
+        sim.getRightVelocityMetersPerSecond() / METERS_PER_MOTOR_ROTATION * 60);
+
+    if (navXYaw != null) {
+      // navX yaw is clockwise positive
+      navXYaw.set(-sim.getHeading().getDegrees());
+    }
+    if (navXPitch != null) {
+      navXPitch.set(Units.radiansToDegrees(chargeStation.getRobotPitch(sim.getPose().getX())));
+    }
+    SmartDashboard.putNumber(
+        "Sim/Charge Station Angle", Units.radiansToDegrees(chargeStation.getAngle()));
+  }
+
+  public double getCurrentDrawAmps() {
+    return sim.getCurrentDrawAmps();
+  }
+}
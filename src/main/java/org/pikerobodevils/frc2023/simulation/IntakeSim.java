@@ -0,0 +1,77 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.frc2023.simulation;
+
+import static org.pikerobodevils.frc2023.Constants.IntakeConstants.*;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.FlywheelSim;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Simulates the intake rollers as a flywheel, with a cube that is pulled in after the rollers have
+ * been intaking for a while with the intake open. A held cube stalls the rollers, so the current
+ * rises to the current limit the way stall detection expects. Ejecting releases the cube.
+ */
+public class IntakeSim {
+  private static final DCMotor kMotors = DCMotor.getNEO(2);
+  private static final double kGearing = 5;
+  private static final double kMoiKgMetersSquared = 0.002;
+  private static final double kCubeContactSeconds = 0.75;
+
+  private final FlywheelSim rollers = new FlywheelSim(kMotors, kGearing, kMoiKgMetersSquared);
+  private final SparkMaxSim main = new SparkMaxSim(LEFT_ID);
+  private final SparkMaxSim follower = new SparkMaxSim(RIGHT_ID);
+  private final PneumaticsSim pneumatics;
+
+  private double intakingSeconds = 0;
+  private boolean hasCube = false;
+  private double currentAmps = 0;
+
+  public IntakeSim(PneumaticsSim pneumatics) {
+    this.pneumatics = pneumatics;
+  }
+
+  public void update() {
+    // The main controller is inverted, so intaking is a negative output
+    double output = main.getAppliedOutput();
+    boolean intaking = output < 0;
+    boolean open = pneumatics.getPosition(PneumaticsSim.kIntake) > 0.5;
+
+    if (!hasCube && intaking && open) {
+      intakingSeconds += .02;
+      hasCube = intakingSeconds >= kCubeContactSeconds;
+    } else if (!intaking) {
+      intakingSeconds = 0;
+    }
+    if (hasCube && output > 0) {
+      hasCube = false;
+    }
+
+    double volts = output * RobotController.getBatteryVoltage();
+    if (hasCube && intaking) {
+      // Stalled against the cube
+      rollers.setState(0);
+      currentAmps = Math.abs(volts) / kMotors.rOhms;
+    } else {
+      rollers.setInputVoltage(volts);
+      rollers.update(.02);
+      currentAmps = rollers.getCurrentDrawAmps();
+    }
+    // Each controller limits its own share of the current
+    currentAmps = Math.min(currentAmps / 2, CURRENT_LIMIT) * 2;
+
+    main.setCurrent(currentAmps / 2);
+    follower.setCurrent(currentAmps / 2);
+    main.setVelocity(rollers.getAngularVelocityRPM() * kGearing);
+    SmartDashboard.putBoolean("Sim/Has Cube", hasCube);
+  }
+
+  public double getCurrentDrawAmps() {
+    return currentAmps;
+  }
+}
@@ -0,0 +1,127 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.frc2023.simulation;
+
+import static org.pikerobodevils.frc2023.Constants.ExtensionConstants.*;
+import static org.pikerobodevils.frc2023.Constants.IntakeConstants.*;
+
+import edu.wpi.first.wpilibj.simulation.PneumaticsBaseSim;
+import edu.wpi.first.wpilibj.simulation.REVPHSim;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import java.util.ArrayList;
+import java.util.List;
+import org.pikerobodevils.frc2023.Constants;
+import org.pikerobodevils.frc2023.subsystems.Pneumatics;
+
+/**
+ * Simulates stored pressure, the compressor and the double solenoid cylinders.
+ *
+ * <p>Each cylinder moves between retracted (0) and extended (1) over its stroke time, which gets
+ * longer as the tanks drop below working pressure, and every stroke takes a fixed amount of stored
+ * pressure. The compressor refills the tanks with the same hysteresis the robot configures on the
+ * PH, since the PH firmware does not run in simulation.
+ */
+public class PneumaticsSim {
+  public static final int kIntake = 0;
+  public static final int kUpperExtension = 1;
+  public static final int kLowerExtension = 2;
+
+  private static final double kMinPressure = 100;
+  private static final double kMaxPressure = 120;
+  private static final double kWorkingPressure = 60;
+  private static final double kCompressorPsiPerSecond = 1.5;
+  private static final double kCompressorAmps = 10;
+
+  /** A double solenoid and the cylinders it drives. */
+  private static class Cylinder {
+    final String name;
+    final int forwardChannel;
+    final int reverseChannel;
+    final double strokeSeconds;
+    final double psiPerStroke;
+    double position = 0;
+    double target = 0;
+
+    Cylinder(
+        String name,
+        int forwardChannel,
+        int reverseChannel,
+        double strokeSeconds,
+        double psiPerStroke) {
+      this.name = name;
+      this.forwardChannel = forwardChannel;
+      this.reverseChannel = reverseChannel;
+      this.strokeSeconds = strokeSeconds;
+      this.psiPerStroke = psiPerStroke;
+    }
+  }
+
+  // Solenoids are on the PM_TYPE module, the compressor is always on the PH
+  private final PneumaticsBaseSim solenoids = PneumaticsBaseSim.getForType(0, Constants.PM_TYPE);
+  private final REVPHSim compressorSim = new REVPHSim();
+  private final List<Cylinder> cylinders = new ArrayList<>();
+  private final Pneumatics pneumatics;
+
+  private double pressure = kMaxPressure;
+  private boolean compressorOn = false;
+
+  public PneumaticsSim(Pneumatics pneumatics) {
+    this.pneumatics = pneumatics;
+    // In the order of the indices above
+    cylinders.add(new Cylinder("Intake", FORWARD_CHANNEL, REVERSE_CHANNEL, .15, .5));
+    cylinders.add(new Cylinder("Upper Extension", UPPER_FORWARD, UPPER_REVERSE, .4, 1.5));
+    cylinders.add(new Cylinder("Lower Extension", LOWER_FORWARD, LOWER_REVERSE, .4, 1.5));
+  }
+
+  public void update() {
+    for (Cylinder cylinder : cylinders) {
+      boolean forward = solenoids.getSolenoidOutput(cylinder.forwardChannel);
+      boolean reverse = solenoids.getSolenoidOutput(cylinder.reverseChannel);
+      // Neither or both leaves the valve where it was
+      if (forward != reverse) {
+        cylinder.target = forward ? 1 : 0;
+      }
+
+      double error = cylinder.target - cylinder.position;
+      if (error != 0 && pressure > 0) {
+        double speed = Math.min(1, pressure / kWorkingPressure) / cylinder.strokeSeconds;
+        double step = Math.copySign(Math.min(Math.abs(error), speed * .02), error);
+        cylinder.position += step;
+        pressure -= Math.abs(step) * cylinder.psiPerStroke;
+      }
+      SmartDashboard.putNumber("Sim/" + cylinder.name + " Position", cylinder.position);
+    }
+
+    if (pressure < kMinPressure) {
+      compressorOn = true;
+    } else if (pressure >= kMaxPressure) {
+      compressorOn = false;
+    }
+    if (compressorOn) {
+      pressure += kCompressorPsiPerSecond * .02;
+    }
+    pressure = Math.max(0, pressure);
+
+    compressorSim.setCompressorOn(compressorOn);
+    compressorSim.setCompressorCurrent(compressorOn ? kCompressorAmps : 0);
+    compressorSim.setPressureSwitch(pressure >= kMaxPressure);
+    pneumatics.setSimPressure(pressure);
+  }
+
+  /**
+   * Returns the position of a cylinder.
+   *
+   * @param index one of {@link #kIntake}, {@link #kUpperExtension} or {@link #kLowerExtension}
+   * @return position from 0 (retracted) to 1 (extended)
+   */
+  public double getPosition(int index) {
+    return cylinders.get(index).position;
+  }
+
+  public double getCurrentDrawAmps() {
+    return compressorOn ? kCompressorAmps : 0;
+  }
+}
@@ -0,0 +1,75 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.frc2023.simulation;
+
+import edu.wpi.first.hal.SimDouble;
+import edu.wpi.first.wpilibj.simulation.SimDeviceSim;
+
+/**
+ * Reads and writes the sim device REVLib creates for a Spark Max. Values the device does not
+ * expose are ignored, so physics sims keep working if REVLib renames them.
+ */
+public class SparkMaxSim {
+  private final SimDouble m_appliedOutput;
+  private final SimDouble m_position;
+  private final SimDouble m_velocity;
+  private final SimDouble m_current;
+
+  /**
+   * Create a sim for the Spark Max with the given CAN ID.
+   *
+   * @param canId CAN ID of the Spark Max
+   */
+  public SparkMaxSim(int canId) {
+    SimDeviceSim device = new SimDeviceSim("SPARK MAX [" + canId + "]");
+    m_appliedOutput = device.getDouble("Applied Output");
+    m_position = device.getDouble("Position");
+    m_velocity = device.getDouble("Velocity");
+    m_current = device.getDouble("Motor Current");
+  }
+
+  /**
+   * Returns the duty cycle commanded to the motor.
+   *
+   * @return applied output in the range [-1, 1]
+   */
+  public double getAppliedOutput() {
+    return m_appliedOutput == null ? 0 : m_appliedOutput.get();
+  }
+
+  /**
+   * Set the integrated encoder position.
+   *
+   * @param rotations motor rotations
+   */
+  public void setPosition(double rotations) {
+    if (m_position != null) {
+      m_position.set(rotations);
+    }
+  }
+
+  /**
+   * Set the integrated encoder velocity.
+   *
+   * @param rpm motor RPM
+   */
+  public void setVelocity(double rpm) {
+    if (m_velocity != null) {
+      m_velocity.set(rpm);
+    }
+  }
+
+  /**
+   * Set the output current.
+   *
+   * @param amps current in amps
+   */
+  public void setCurrent(double amps) {
+    if (m_current != null) {
+      m_current.set(amps);
+    }
+  }
+}
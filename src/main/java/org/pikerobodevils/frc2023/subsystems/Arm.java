@@ -24,6 +24,10 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import io.github.oblarg.oblog.Loggable;
 import io.github.oblarg.oblog.annotations.Log;
 import java.util.function.DoubleSupplier;
+import org.pikerobodevils.lib.InputSnapshot;
+import org.pikerobodevils.lib.profiling.LoopProfiler;
+import org.pikerobodevils.lib.profiling.PeriodicTimer;
+import org.pikerobodevils.lib.telemetry.PublishRate;
 import org.pikerobodevils.lib.vendor.SparkMax;
 import org.pikerobodevils.lib.vendor.SparkMaxUtils;
 
@@ -55,7 +59,36 @@ public class Arm extends SubsystemBase implements Loggable {
   Encoder encoder = new Encoder(ENCODER_QUAD_A, ENCODER_QUAD_B, true, CounterBase.EncodingType.k4X);
   DutyCycleEncoder absoluteEncoder = new DutyCycleEncoder(ENCODER_ABS_DIO);
   ArmFeedforward feedforward = new ArmFeedforward(KS, KG, KV, KA);
-  ProfiledPIDController controller = new ProfiledPIDController(KP, KI, KD, CONSTRAINTS);
+  ProfiledPIDController controller =
+      new ProfiledPIDController(
+          KP, KI, KD, CONSTRAINTS, USE_CONTROL_NOTIFIER ? CONTROL_LOOP_PERIOD : 0.02);
+
+  private final ArmEstimator estimator =
+      new ArmEstimator(USE_CONTROL_NOTIFIER ? CONTROL_LOOP_PERIOD : 0.02);
+  private double lastEstimateTime;
+  // Last commanded voltage, the estimator's model input. Written by whichever thread sets it.
+  private volatile double commandedVolts = 0;
+
+  private final LoopProfiler.Section periodicSection = LoopProfiler.section("Arm.periodic()");
+
+  /*
+   * Notifier control loop, only used when USE_CONTROL_NOTIFIER is set. The controller then belongs
+   * to the notifier thread. The main thread is the only writer of the goal and the closed loop
+   * deadline, and the notifier is the only writer of controllerState.
+   */
+  private static final long CLOSED_LOOP_TIMEOUT_NANOS = 40_000_000;
+  private final Notifier controlNotifier;
+  private final PeriodicTimer controlTimer;
+  private volatile double goalHandoff;
+  private volatile long closedLoopDeadlineNanos;
+  private final ControllerState controllerState = new ControllerState();
+
+  private final InputSnapshot.DoubleInput positionInput;
+  private final InputSnapshot.DoubleInput velocityInput;
+  private final InputSnapshot.DoubleInput quadPositionInput;
+  private final InputSnapshot.DoubleInput voltageInput;
+  private final InputSnapshot.DoubleInput leftCurrentInput;
+  private final InputSnapshot.DoubleInput rightCurrentInput;
 
   @Log(name = "Arm Simulation")
   private final Mechanism2d m_mech2d = new Mechanism2d(60, 60);
@@ -85,12 +118,93 @@ public class Arm extends SubsystemBase implements Loggable {
     absoluteEncoder.setDistancePerRotation(RAD_PER_ENCODER_ROTATION);
     absoluteEncoder.setPositionOffset(ENCODER_OFFSET);
 
+    // Registered after the encoders are configured, since inputs are read once on registration
+    positionInput =
+        InputSnapshot.registerDouble(
+            "Arm/Position", () -> MathUtil.angleModulus(absoluteEncoder.getDistance()));
+    velocityInput = InputSnapshot.registerDouble("Arm/Velocity", encoder::getRate);
+    quadPositionInput = InputSnapshot.registerDouble("Arm/QuadPosition", encoder::getDistance);
+    voltageInput = InputSnapshot.registerDouble("Arm/Voltage", this::readVoltage);
+    leftCurrentInput =
+        InputSnapshot.registerDouble("Arm/LeftCurrent", leftController::getOutputCurrent);
+    rightCurrentInput =
+        InputSnapshot.registerDouble("Arm/RightCurrent", rightController::getOutputCurrent);
+
     setDefaultCommand(holdPositionCommand().withName("Default Hold Position"));
 
+    estimator.reset(positionInput.get(), quadPositionInput.get());
+    lastEstimateTime = Timer.getFPGATimestamp();
+    controllerState.write(
+        positionInput.get(), 0, positionInput.get(), 0, ArmPosition.STOW.valueRadians, false);
+    controllerState.read();
     controller.reset(getPosition());
     setGoal(ArmPosition.STOW.valueRadians);
 
     m_armTower.setColor(new Color8Bit(Color.kBlue));
+
+    if (USE_CONTROL_NOTIFIER) {
+      closedLoopDeadlineNanos = System.nanoTime();
+      controlTimer = new PeriodicTimer("Arm Control", CONTROL_LOOP_PERIOD);
+      controlNotifier = new Notifier(this::runControlLoop);
+      controlNotifier.setName("Arm Control");
+      controlNotifier.startPeriodic(CONTROL_LOOP_PERIOD);
+    } else {
+      controlTimer = null;
+      controlNotifier = null;
+    }
+  }
+
+  /**
+   * Latest measurement and setpoint from the control notifier, handed to the main thread with a
+   * sequence lock so the reader never sees a half written update and the writer never waits.
+   */
+  private static class ControllerState {
+    private volatile int sequence = 0;
+    private volatile double position;
+    private volatile double velocity;
+    private volatile double setpointPosition;
+    private volatile double setpointVelocity;
+    private volatile double goal;
+    private volatile boolean atGoal;
+
+    // Main thread copy, refreshed once per loop by read()
+    double currentPosition;
+    double currentVelocity;
+    double currentSetpointPosition;
+    double currentSetpointVelocity;
+    double currentGoal;
+    boolean currentAtGoal;
+
+    void write(
+        double position,
+        double velocity,
+        double setpointPosition,
+        double setpointVelocity,
+        double goal,
+        boolean atGoal) {
+      int seq = sequence;
+      sequence = seq + 1;
+      this.position = position;
+      this.velocity = velocity;
+      this.setpointPosition = setpointPosition;
+      this.setpointVelocity = setpointVelocity;
+      this.goal = goal;
+      this.atGoal = atGoal;
+      sequence = seq + 2;
+    }
+
+    void read() {
+      int seq;
+      do {
+        seq = sequence;
+        currentPosition = position;
+        currentVelocity = velocity;
+        currentSetpointPosition = setpointPosition;
+        currentSetpointVelocity = setpointVelocity;
+        currentGoal = goal;
+        currentAtGoal = atGoal;
+      } while ((seq & 1) != 0 || seq != sequence);
+    }
   }
 
   /**
@@ -99,12 +213,25 @@ public class Arm extends SubsystemBase implements Loggable {
    * @param volts voltage to apply.
    */
   public void setVoltage(double volts) {
+    if (USE_CONTROL_NOTIFIER) {
+      // Open loop control takes over from the notifier
+      closedLoopDeadlineNanos = System.nanoTime();
+    }
+    applyVoltage(volts);
+  }
+
+  private void applyVoltage(double volts) {
+    commandedVolts = volts;
     leftController.setVoltage(volts);
     rightController.setVoltage(volts);
   }
 
   @Log(name = "Voltage")
   public double getVoltage() {
+    return voltageInput.get();
+  }
+
+  private double readVoltage() {
     if (RobotBase.isReal()) {
       return leftController.getAppliedOutput() * leftController.getBusVoltage();
     } else {
@@ -113,17 +240,33 @@ public class Arm extends SubsystemBase implements Loggable {
   }
 
   @Log(name = "Left Current")
+  @PublishRate(10)
   public double getLeftCurrent() {
-    return leftController.getOutputCurrent();
+    return leftCurrentInput.get();
   }
 
   @Log(name = "Right Current")
+  @PublishRate(10)
   public double getRightCurrent() {
-    return rightController.getOutputCurrent();
+    return rightCurrentInput.get();
   }
 
+  /**
+   * Returns the position of the arm in radians, estimated if USE_STATE_ESTIMATOR is set.
+   *
+   * @return position of the arm in radians
+   */
   public double getPosition() {
-    return MathUtil.angleModulus(absoluteEncoder.getDistance());
+    if (!USE_STATE_ESTIMATOR) {
+      return positionInput.get();
+    }
+    return USE_CONTROL_NOTIFIER ? controllerState.currentPosition : estimator.getPosition();
+  }
+
+  @Log(name = "Raw Position")
+  @PublishRate(10)
+  public double getRawPositionDeg() {
+    return Units.radiansToDegrees(positionInput.get());
   }
 
   @Log(name = "Position")
@@ -132,17 +275,27 @@ public class Arm extends SubsystemBase implements Loggable {
   }
 
   @Log
+  @PublishRate(10)
   public double getQuadPositionDeg() {
-    return Units.radiansToDegrees(encoder.getDistance());
+    return Units.radiansToDegrees(quadPositionInput.get());
   }
 
   /**
-   * Returns the velocity of the arm in radians / second.
+   * Returns the velocity of the arm in radians / second, estimated if USE_STATE_ESTIMATOR is set.
    *
    * @return velocity of the arm in radians / second
    */
   public double getVelocity() {
-    return encoder.getRate();
+    if (!USE_STATE_ESTIMATOR) {
+      return velocityInput.get();
+    }
+    return USE_CONTROL_NOTIFIER ? controllerState.currentVelocity : estimator.getVelocity();
+  }
+
+  @Log(name = "Raw Velocity")
+  @PublishRate(10)
+  public double getRawVelocityDeg() {
+    return Units.radiansToDegrees(velocityInput.get());
   }
 
   @Log(name = "Velocity")
@@ -156,6 +309,10 @@ public class Arm extends SubsystemBase implements Loggable {
    * @return true if the arm is at the goal otherwise false.
    */
   public boolean atGoal() {
+    if (USE_CONTROL_NOTIFIER) {
+      // Ignore a state computed against a goal that has since changed
+      return controllerState.currentAtGoal && controllerState.currentGoal == goalHandoff;
+    }
     return controller.atGoal();
   }
 
@@ -166,20 +323,33 @@ public class Arm extends SubsystemBase implements Loggable {
    * @param goal goal position of the arm in radians.
    */
   public void setGoal(double goal) {
-    controller.setGoal(goal);
+    if (USE_CONTROL_NOTIFIER) {
+      goalHandoff = goal;
+    } else {
+      controller.setGoal(goal);
+    }
   }
 
   @Log(name = "Setpoint Position")
   public double getSetpointPosition() {
+    if (USE_CONTROL_NOTIFIER) {
+      return Units.radiansToDegrees(controllerState.currentSetpointPosition);
+    }
     return Units.radiansToDegrees(controller.getSetpoint().position);
   }
 
   public double getGoalPosition() {
+    if (USE_CONTROL_NOTIFIER) {
+      return goalHandoff;
+    }
     return controller.getGoal().position;
   }
 
   @Log(name = "Setpoint Velocity")
   public double getSetpointVelocity() {
+    if (USE_CONTROL_NOTIFIER) {
+      return Units.radiansToDegrees(controllerState.currentSetpointVelocity);
+    }
     return Units.radiansToDegrees(controller.getSetpoint().velocity);
   }
 
@@ -189,6 +359,11 @@ public class Arm extends SubsystemBase implements Loggable {
   }
 
   public void updatePositionController() {
+    if (USE_CONTROL_NOTIFIER) {
+      // The notifier keeps running the controller as long as a command keeps asking for it
+      closedLoopDeadlineNanos = System.nanoTime() + CLOSED_LOOP_TIMEOUT_NANOS;
+      return;
+    }
     // Update controller with new measurement
     // This updates the controllers setpoint internally.
     var feedbackOutput = controller.calculate(getPosition());
@@ -228,11 +403,54 @@ public class Arm extends SubsystemBase implements Loggable {
         });
   }
 
+  /** Runs on the control notifier thread. Reads the encoders directly rather than the snapshot. */
+  private void runControlLoop() {
+    controlTimer.start();
+    double absolutePosition = MathUtil.angleModulus(absoluteEncoder.getDistance());
+    double position = absolutePosition;
+    double velocity = encoder.getRate();
+    if (USE_STATE_ESTIMATOR) {
+      updateEstimator(absolutePosition, encoder.getDistance());
+      position = estimator.getPosition();
+      velocity = estimator.getVelocity();
+    }
+    double goal = goalHandoff;
+    controller.setGoal(goal);
+    if (DriverStation.isEnabled() && System.nanoTime() - closedLoopDeadlineNanos < 0) {
+      var feedbackOutput = controller.calculate(position);
+      var setpoint = controller.getSetpoint();
+      var feedforwardOutput = feedforward.calculate(position, setpoint.velocity);
+      applyVoltage(feedbackOutput + feedforwardOutput);
+    } else {
+      // Start the profile from the current position when closed loop control resumes
+      controller.reset(position);
+    }
+    var setpoint = controller.getSetpoint();
+    controllerState.write(
+        position, velocity, setpoint.position, setpoint.velocity, goal, controller.atGoal());
+    controlTimer.stop();
+  }
+
+  private void updateEstimator(double absolutePosition, double quadPosition) {
+    double now = Timer.getFPGATimestamp();
+    // Motor outputs are zeroed while disabled regardless of the last command
+    double volts = DriverStation.isEnabled() ? commandedVolts : 0;
+    estimator.update(volts, absolutePosition, quadPosition, now - lastEstimateTime);
+    lastEstimateTime = now;
+  }
+
   @Override
   public void periodic() {
-    if (!DriverStation.isEnabled()) {
+    periodicSection.start();
+    if (USE_STATE_ESTIMATOR && !USE_CONTROL_NOTIFIER) {
+      updateEstimator(positionInput.get(), quadPositionInput.get());
+    }
+    if (USE_CONTROL_NOTIFIER) {
+      controllerState.read();
+    } else if (!DriverStation.isEnabled()) {
       controller.reset(getPosition());
     }
     m_arm.setAngle(Units.radiansToDegrees(getPosition()));
+    periodicSection.stop();
   }
 }
@@ -0,0 +1,114 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.frc2023.subsystems;
+
+import static org.pikerobodevils.frc2023.Constants.ArmConstants.*;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.KalmanFilter;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N2;
+import edu.wpi.first.math.system.LinearSystem;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+
+/**
+ * Kalman filter estimate of arm position and velocity. It fuses the absolute encoder, the
+ * quadrature encoder and the applied voltage, using the single jointed arm model from {@link
+ * edu.wpi.first.math.system.plant.LinearSystemId}.
+ *
+ * <p>The quadrature encoder is relative, so it is aligned to the absolute encoder on {@link
+ * #reset}. Gravity and static friction are not part of the linear model. Their feedforward voltage
+ * is subtracted from the applied voltage before it is used as the model input.
+ *
+ * <p>Not thread safe. It should be updated from the same thread that runs the arm controller.
+ */
+public class ArmEstimator {
+  private final KalmanFilter<N2, N1, N2> observer;
+  private final Matrix<N1, N1> input = new Matrix<>(Nat.N1(), Nat.N1());
+  private final Matrix<N2, N1> measurement = new Matrix<>(Nat.N2(), Nat.N1());
+
+  private double quadOffset = 0;
+
+  /**
+   * Create an estimator.
+   *
+   * @param nominalDtSeconds nominal update period, used to compute the steady state gain
+   */
+  public ArmEstimator(double nominalDtSeconds) {
+    LinearSystem<N2, N1, N1> arm =
+        LinearSystemId.createSingleJointedArmSystem(
+            DCMotor.getNEO(2), MOI_KG_M_SQUARED, ARM_REDUCTION);
+    // Both encoders measure position, the quadrature encoder after alignment
+    LinearSystem<N2, N1, N2> plant =
+        new LinearSystem<>(
+            arm.getA(),
+            arm.getB(),
+            Matrix.mat(Nat.N2(), Nat.N2()).fill(1, 0, 1, 0),
+            new Matrix<>(Nat.N2(), Nat.N1()));
+    observer =
+        new KalmanFilter<>(
+            Nat.N2(),
+            Nat.N2(),
+            plant,
+            VecBuilder.fill(MODEL_POSITION_STD_DEV, MODEL_VELOCITY_STD_DEV),
+            VecBuilder.fill(ABSOLUTE_ENCODER_STD_DEV, QUAD_ENCODER_STD_DEV),
+            nominalDtSeconds);
+  }
+
+  /**
+   * Reset the estimate to the absolute position at rest, and align the quadrature encoder to it.
+   *
+   * @param absolutePosition absolute encoder position in radians
+   * @param quadPosition quadrature encoder position in radians
+   */
+  public void reset(double absolutePosition, double quadPosition) {
+    quadOffset = absolutePosition - quadPosition;
+    observer.reset();
+    observer.setXhat(VecBuilder.fill(absolutePosition, 0));
+  }
+
+  /**
+   * Predict forward with the voltage applied since the last update, then correct with the latest
+   * encoder readings.
+   *
+   * @param appliedVolts voltage applied to the motors since the last update
+   * @param absolutePosition absolute encoder position in radians
+   * @param quadPosition quadrature encoder position in radians
+   * @param dtSeconds time since the last update
+   */
+  public void update(
+      double appliedVolts, double absolutePosition, double quadPosition, double dtSeconds) {
+    double position = observer.getXhat(0);
+    double velocity = observer.getXhat(1);
+    input.set(0, 0, appliedVolts - KG * Math.cos(position) - KS * Math.signum(velocity));
+    observer.predict(input, dtSeconds);
+
+    measurement.set(0, 0, absolutePosition);
+    measurement.set(1, 0, quadPosition + quadOffset);
+    observer.correct(input, measurement);
+  }
+
+  /**
+   * Returns the estimated position.
+   *
+   * @return position in radians
+   */
+  public double getPosition() {
+    return observer.getXhat(0);
+  }
+
+  /**
+   * Returns the estimated velocity.
+   *
+   * @return velocity in radians / second
+   */
+  public double getVelocity() {
+    return observer.getXhat(1);
+  }
+}
@@ -12,14 +12,30 @@ import static org.pikerobodevils.frc2023.Constants.DrivetrainConstants.*;
 import com.kauailabs.navx.frc.AHRS;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.RamseteController;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.filter.LinearFilter;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.SPI;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.drive.DifferentialDrive;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import io.github.oblarg.oblog.Loggable;
 import io.github.oblarg.oblog.annotations.Log;
 import java.util.function.DoubleSupplier;
+import org.pikerobodevils.lib.InputSnapshot;
+import org.pikerobodevils.lib.profiling.LoopProfiler;
+import org.pikerobodevils.lib.telemetry.PublishRate;
+import org.pikerobodevils.lib.trajectory.MappedTrajectory;
+import org.pikerobodevils.lib.vendor.NavXPipeline;
 import org.pikerobodevils.lib.vendor.SparkMax;
+import org.pikerobodevils.lib.vendor.SparkMaxUtils;
 
 public class Drivetrain extends SubsystemBase implements Loggable {
 
@@ -33,42 +49,89 @@ public class Drivetrain extends SubsystemBase implements Loggable {
   private final SparkMax rightFollowerTwo =
       new SparkMax(RIGHT_FOLLOWER_TWO_ID, MotorType.kBrushless);
 
-  private final AHRS navX = new AHRS();
+  private final AHRS navX = new AHRS(SPI.Port.kMXP, NAVX_UPDATE_RATE_HZ);
+  private final NavXPipeline imu =
+      new NavXPipeline(navX, PITCH_FILTER_TIME_CONSTANT, PITCH_RATE_FILTER_TIME_CONSTANT);
 
+  // Used when the navX is not calling back, e.g. in simulation
   LinearFilter pitchRate = LinearFilter.backwardFiniteDifference(1, 2, 0.02);
 
   double currentPitchRate = 0;
 
+  private final LoopProfiler.Section periodicSection =
+      LoopProfiler.section("Drivetrain.periodic()");
+
+  private final InputSnapshot.DoubleInput yawInput =
+      InputSnapshot.registerDouble("Drivetrain/Yaw", navX::getYaw);
+  private final InputSnapshot.BooleanInput imuConnectedInput =
+      InputSnapshot.registerBoolean("Drivetrain/ImuConnected", imu::hasData);
+  private final InputSnapshot.DoubleInput pitchInput =
+      InputSnapshot.registerDouble(
+          "Drivetrain/Pitch", () -> imu.hasData() ? imu.getCompensatedPitch() : navX.getPitch());
+  private final InputSnapshot.DoubleInput imuPitchRateInput =
+      InputSnapshot.registerDouble("Drivetrain/PitchRate", imu::getPitchRate);
+  private final InputSnapshot.DoubleInput imuLatencyInput =
+      InputSnapshot.registerDouble(
+          "Drivetrain/ImuLatency",
+          () -> imu.hasData() ? (RobotController.getFPGATime() - imu.getTimestamp()) / 1000.0 : 0);
+  private final InputSnapshot.DoubleInput rollInput =
+      InputSnapshot.registerDouble("Drivetrain/Roll", navX::getRoll);
+  private final InputSnapshot.DoubleInput leftVoltageInput =
+      InputSnapshot.registerDouble(
+          "Drivetrain/LeftVoltage",
+          () -> leftLeader.getAppliedOutput() * leftLeader.getBusVoltage());
+  private final InputSnapshot.DoubleInput rightVoltageInput =
+      InputSnapshot.registerDouble(
+          "Drivetrain/RightVoltage",
+          () -> rightLeader.getAppliedOutput() * rightLeader.getBusVoltage());
+
+  // Encoders report motor rotations and RPM, converted here rather than on the controller
+  private final InputSnapshot.DoubleInput leftPositionInput =
+      InputSnapshot.registerDouble(
+          "Drivetrain/LeftPosition",
+          () -> leftLeader.getEncoder().getPosition() * METERS_PER_MOTOR_ROTATION);
+  private final InputSnapshot.DoubleInput rightPositionInput =
+      InputSnapshot.registerDouble(
+          "Drivetrain/RightPosition",
+          () -> rightLeader.getEncoder().getPosition() * METERS_PER_MOTOR_ROTATION);
+  private final InputSnapshot.DoubleInput leftVelocityInput =
+      InputSnapshot.registerDouble(
+          "Drivetrain/LeftVelocity",
+          () -> leftLeader.getEncoder().getVelocity() * METERS_PER_MOTOR_ROTATION / 60);
+  private final InputSnapshot.DoubleInput rightVelocityInput =
+      InputSnapshot.registerDouble(
+          "Drivetrain/RightVelocity",
+          () -> rightLeader.getEncoder().getVelocity() * METERS_PER_MOTOR_ROTATION / 60);
+
+  private final DifferentialDriveOdometry odometry =
+      new DifferentialDriveOdometry(
+          getHeading(), leftPositionInput.get(), rightPositionInput.get());
+
   /** Creates a new Drivetrain. */
   public Drivetrain() {
-    leftLeader.restoreFactoryDefaults();
-    leftLeader.setIdleMode(IDLE_MODE);
-    leftLeader.setSmartCurrentLimit(40);
-
-    leftFollowerOne.restoreFactoryDefaults();
-    leftFollowerOne.setIdleMode(IDLE_MODE);
-    leftFollowerOne.follow(leftLeader);
-    leftFollowerTwo.setSmartCurrentLimit(CURRENT_LIMIT);
-
-    leftFollowerTwo.restoreFactoryDefaults();
-    leftFollowerTwo.setIdleMode(IDLE_MODE);
-    leftFollowerTwo.follow(leftLeader);
-    leftFollowerTwo.setSmartCurrentLimit(CURRENT_LIMIT);
-
-    rightLeader.restoreFactoryDefaults();
-    rightLeader.setIdleMode(IDLE_MODE);
-    rightLeader.setInverted(true);
-    rightLeader.setSmartCurrentLimit(CURRENT_LIMIT);
-
-    rightFollowerOne.restoreFactoryDefaults();
-    rightFollowerOne.setIdleMode(IDLE_MODE);
-    rightFollowerOne.follow(rightLeader);
-    rightFollowerTwo.setSmartCurrentLimit(CURRENT_LIMIT);
+    // Factory defaults are restored by SparkMax, these are queued and applied at boot
+    leftLeader.withInitializer((spark, isInit) -> initializeController(spark, 40));
+    leftFollowerOne.withInitializer((spark, isInit) -> initializeController(spark, CURRENT_LIMIT));
+    leftFollowerTwo.withInitializer((spark, isInit) -> initializeController(spark, CURRENT_LIMIT));
+    leftLeader.withFollower(leftFollowerOne).withFollower(leftFollowerTwo);
+
+    rightLeader.withInitializer(
+        (spark, isInit) -> {
+          spark.setInverted(true);
+          return initializeController(spark, CURRENT_LIMIT);
+        });
+    rightFollowerOne.withInitializer(
+        (spark, isInit) -> initializeController(spark, CURRENT_LIMIT));
+    rightFollowerTwo.withInitializer(
+        (spark, isInit) -> initializeController(spark, CURRENT_LIMIT));
+    rightLeader.withFollower(rightFollowerOne).withFollower(rightFollowerTwo);
+  }
 
-    rightFollowerTwo.restoreFactoryDefaults();
-    rightFollowerTwo.setIdleMode(IDLE_MODE);
-    rightFollowerTwo.follow(rightLeader);
-    rightFollowerTwo.setSmartCurrentLimit(CURRENT_LIMIT);
+  private static boolean initializeController(CANSparkMax spark, int currentLimit) {
+    int errors = 0;
+    errors += SparkMaxUtils.check(spark.setIdleMode(IDLE_MODE));
+    errors += SparkMaxUtils.check(spark.setSmartCurrentLimit(currentLimit));
+    return errors == 0;
   }
 
   public void setLeftRight(double left, double right) {
@@ -92,33 +155,65 @@ public class Drivetrain extends SubsystemBase implements Loggable {
   }
 
   @Log(name = "Yaw")
+  @PublishRate(10)
   public double getYaw() {
-    return navX.getYaw();
+    return yawInput.get();
   }
 
   @Log(name = "Pitch")
   public double getPitch() {
-    return navX.getPitch();
+    return pitchInput.get();
   }
 
   @Log(name = "Pitch Rate")
   public double getPitchRate() {
-    return currentPitchRate;
+    return imuConnectedInput.get() ? imuPitchRateInput.get() : currentPitchRate;
+  }
+
+  /**
+   * Returns the age of the latest navX sample at the start of the loop.
+   *
+   * @return latency in milliseconds, 0 if the navX is not calling back
+   */
+  @Log(name = "IMU Latency")
+  @PublishRate(10)
+  public double getImuLatency() {
+    return imuLatencyInput.get();
+  }
+
+  /**
+   * Returns the heading for odometry, counter-clockwise positive.
+   *
+   * @return heading of the robot
+   */
+  public Rotation2d getHeading() {
+    return Rotation2d.fromDegrees(-getYaw());
+  }
+
+  public Pose2d getPose() {
+    return odometry.getPoseMeters();
+  }
+
+  public void resetOdometry(Pose2d pose) {
+    odometry.resetPosition(getHeading(), leftPositionInput.get(), rightPositionInput.get(), pose);
   }
 
   @Log(name = "Roll")
+  @PublishRate(10)
   public double getRoll() {
-    return navX.getRoll();
+    return rollInput.get();
   }
 
   @Log
+  @PublishRate(10)
   public double getLeftVoltage() {
-    return leftLeader.getAppliedOutput() * leftLeader.getBusVoltage();
+    return leftVoltageInput.get();
   }
 
   @Log
+  @PublishRate(10)
   public double getRightVoltage() {
-    return leftLeader.getAppliedOutput() * leftLeader.getBusVoltage();
+    return rightVoltageInput.get();
   }
 
   public void arcadeDrive(double speed, double rotation) {
@@ -130,18 +225,54 @@ public class Drivetrain extends SubsystemBase implements Loggable {
     return run(() -> arcadeDrive(speed.getAsDouble(), rotation.getAsDouble()));
   }
 
-  /*public CommandBase driveTrajectoryCommand(Trajectory trajectory) {
-    return driveTrajectoryCommand(() -> trajectory);
-  }*/
-
-  /*public CommandBase driveTrajectoryCommand(Supplier<Trajectory> trajectory) {
-    RamseteController ramsete = new RamseteController();
-    PIDController leftController = new PIDController(0,0,0);
-    PIDController rightController = new PIDController(0,0,0);
-    return run(() -> {
+  /**
+   * Follow a trajectory with a Ramsete controller, starting odometry at the trajectory's initial
+   * pose. Samples are read from the mapped file as the command runs.
+   *
+   * @param trajectory trajectory to follow
+   * @return the command
+   */
+  public CommandBase driveTrajectoryCommand(MappedTrajectory trajectory) {
+    RamseteController ramsete = new RamseteController(RAMSETE_B, RAMSETE_ZETA);
+    SimpleMotorFeedforward feedforward = new SimpleMotorFeedforward(KS, KV, KA);
+    PIDController leftController = new PIDController(KP_VELOCITY, 0, 0);
+    PIDController rightController = new PIDController(KP_VELOCITY, 0, 0);
+    Trajectory.State desiredState = new Trajectory.State();
+    Timer timer = new Timer();
+    double[] previousSpeeds = new double[2];
+    return runOnce(
+            () -> {
+              resetOdometry(trajectory.getInitialPose());
+              leftController.reset();
+              rightController.reset();
+              previousSpeeds[0] = 0;
+              previousSpeeds[1] = 0;
+              timer.reset();
+              timer.start();
+            })
+        .andThen(
+            run(() -> {
+                  trajectory.sample(timer.get(), desiredState);
+                  var wheelSpeeds =
+                      KINEMATICS.toWheelSpeeds(ramsete.calculate(getPose(), desiredState));
+                  double left = wheelSpeeds.leftMetersPerSecond;
+                  double right = wheelSpeeds.rightMetersPerSecond;
+                  setLeftRightVoltage(
+                      feedforward.calculate(left, (left - previousSpeeds[0]) / 0.02)
+                          + leftController.calculate(leftVelocityInput.get(), left),
+                      feedforward.calculate(right, (right - previousSpeeds[1]) / 0.02)
+                          + rightController.calculate(rightVelocityInput.get(), right));
+                  previousSpeeds[0] = left;
+                  previousSpeeds[1] = right;
+                })
+                .until(() -> timer.hasElapsed(trajectory.getTotalTimeSeconds())))
+        .finallyDo(
+            (interrupted) -> {
+              timer.stop();
+              setLeftRightVoltage(0, 0);
+            });
+  }
 
-    })
-  }*/
   public CommandBase setLeftRightVoltageCommand(double leftVoltage, double rightVoltage) {
     return run(() -> {
           setLeftRightVoltage(leftVoltage, rightVoltage);
@@ -172,6 +303,9 @@ public class Drivetrain extends SubsystemBase implements Loggable {
 
   @Override
   public void periodic() {
+    periodicSection.start();
     currentPitchRate = pitchRate.calculate(getPitch());
+    odometry.update(getHeading(), leftPositionInput.get(), rightPositionInput.get());
+    periodicSection.stop();
   }
 }
@@ -7,45 +7,52 @@ package org.pikerobodevils.frc2023.subsystems;
 
 import static org.pikerobodevils.frc2023.Constants.IntakeConstants.*;
 
-import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMaxLowLevel;
 import edu.wpi.first.math.filter.Debouncer;
 import edu.wpi.first.math.filter.LinearFilter;
 import edu.wpi.first.wpilibj.DoubleSolenoid;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import io.github.oblarg.oblog.Loggable;
 import io.github.oblarg.oblog.annotations.Log;
 import java.util.function.DoubleSupplier;
 import org.pikerobodevils.frc2023.Constants;
+import org.pikerobodevils.lib.InputSnapshot;
+import org.pikerobodevils.lib.profiling.LoopProfiler;
+import org.pikerobodevils.lib.telemetry.PublishRate;
+import org.pikerobodevils.lib.vendor.SparkMax;
+import org.pikerobodevils.lib.vendor.SparkMaxUtils;
 
 public class Intake extends SubsystemBase implements Loggable {
   DoubleSolenoid intakeCylinders =
       new DoubleSolenoid(Constants.PM_TYPE, FORWARD_CHANNEL, REVERSE_CHANNEL);
 
   // left
-  private final CANSparkMax main =
-      new CANSparkMax(LEFT_ID, CANSparkMaxLowLevel.MotorType.kBrushless);
+  private final SparkMax main = new SparkMax(LEFT_ID, CANSparkMaxLowLevel.MotorType.kBrushless);
   // right
-  private final CANSparkMax follower =
-      new CANSparkMax(RIGHT_ID, CANSparkMaxLowLevel.MotorType.kBrushless);
+  private final SparkMax follower =
+      new SparkMax(RIGHT_ID, CANSparkMaxLowLevel.MotorType.kBrushless);
 
   LinearFilter currentFilter = LinearFilter.movingAverage(10);
   private double filteredCurrent;
 
+  private final LoopProfiler.Section periodicSection = LoopProfiler.section("Intake.periodic()");
+
+  private final InputSnapshot.DoubleInput currentInput =
+      InputSnapshot.registerDouble("Intake/Current", main::getOutputCurrent);
+  private final InputSnapshot.DoubleInput outputInput =
+      InputSnapshot.registerDouble("Intake/Output", main::getAppliedOutput);
+
   public Intake() {
-    main.restoreFactoryDefaults();
-    main.setInverted(true);
-    main.setSmartCurrentLimit(CURRENT_LIMIT);
-    main.burnFlash();
-    follower.restoreFactoryDefaults();
-    follower.setSmartCurrentLimit(CURRENT_LIMIT);
-    Timer.delay(.1);
-    follower.follow(main, true);
-    Timer.delay(0.1);
-    follower.burnFlash();
-    Timer.delay(.1);
+    // Applied at boot and flashed by SparkMax.burnFlashInSync() with the other controllers
+    main.withInitializer(
+        (spark, isInit) -> {
+          spark.setInverted(true);
+          return SparkMaxUtils.check(spark.setSmartCurrentLimit(CURRENT_LIMIT)) == 0;
+        });
+    follower.withInitializer(
+        (spark, isInit) -> SparkMaxUtils.check(spark.setSmartCurrentLimit(CURRENT_LIMIT)) == 0);
+    main.withFollower(follower, true);
   }
 
   public void open() {
@@ -74,7 +81,7 @@ public class Intake extends SubsystemBase implements Loggable {
 
   @Log(name = "Current")
   public double getCurrent() {
-    return main.getOutputCurrent();
+    return currentInput.get();
   }
 
   @Log
@@ -83,8 +90,9 @@ public class Intake extends SubsystemBase implements Loggable {
   }
 
   @Log
+  @PublishRate(10)
   public double getOutput() {
-    return main.getAppliedOutput();
+    return outputInput.get();
   }
 
   public CommandBase intakeCubeCommand() {
@@ -126,6 +134,8 @@ public class Intake extends SubsystemBase implements Loggable {
 
   @Override
   public void periodic() {
+    periodicSection.start();
     filteredCurrent = currentFilter.calculate(getCurrent());
+    periodicSection.stop();
   }
 }
@@ -7,24 +7,42 @@ package org.pikerobodevils.frc2023.subsystems;
 
 import edu.wpi.first.wpilibj.Compressor;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import edu.wpi.first.wpilibj.RobotBase;
 import io.github.oblarg.oblog.Loggable;
 import io.github.oblarg.oblog.annotations.Log;
+import org.pikerobodevils.lib.InputSnapshot;
+import org.pikerobodevils.lib.telemetry.PublishRate;
 
 public class Pneumatics implements Loggable {
   // VXC8701
   private final Compressor compressor = new Compressor(PneumaticsModuleType.REVPH);
 
+  private final InputSnapshot.DoubleInput currentInput =
+      InputSnapshot.registerDouble("Pneumatics/Current", compressor::getCurrent);
+  // The PH has no analog input in simulation, so PneumaticsSim provides the pressure
+  private volatile double simPressure = 0;
+
+  private final InputSnapshot.DoubleInput pressureInput =
+      InputSnapshot.registerDouble(
+          "Pneumatics/Pressure", () -> RobotBase.isReal() ? compressor.getPressure() : simPressure);
+
   public Pneumatics() {
     compressor.enableAnalog(100, 120);
   }
 
+  public void setSimPressure(double psi) {
+    simPressure = psi;
+  }
+
   @Log(name = "Current")
+  @PublishRate(2)
   public double getCurrent() {
-    return compressor.getCurrent();
+    return currentInput.get();
   }
 
   @Log(name = "Pressure")
+  @PublishRate(2)
   public double getPressure() {
-    return compressor.getPressure();
+    return pressureInput.get();
   }
 }
@@ -5,12 +5,13 @@
 
 package org.pikerobodevils.frc2023.subsystems;
 
+import static org.pikerobodevils.frc2023.Constants.LedConstants.*;
 import static org.pikerobodevils.lib.Commands1.*;
 
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.AddressableLED;
-import edu.wpi.first.wpilibj.AddressableLEDBuffer;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.util.Color;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandBase;
@@ -20,11 +21,31 @@ import io.github.oblarg.oblog.Loggable;
 import io.github.oblarg.oblog.annotations.Log;
 import org.pikerobodevils.frc2023.Constants;
 import org.pikerobodevils.frc2023.subsystems.Arm.ArmPosition;
+import org.pikerobodevils.lib.led.LedEngine;
+import org.pikerobodevils.lib.led.LedPattern;
+import org.pikerobodevils.lib.led.LedSegment;
+import org.pikerobodevils.lib.led.ProgressBarPattern;
+import org.pikerobodevils.lib.led.SolidPattern;
+import org.pikerobodevils.lib.profiling.LoopProfiler;
 
 public class Superstructure extends SubsystemBase implements Loggable {
   private boolean brakeDisplay = false;
-  AddressableLED led = new AddressableLED(0);
-  AddressableLEDBuffer ledBuffer = new AddressableLEDBuffer(200);
+  AddressableLED led = new AddressableLED(PORT);
+  LedEngine ledEngine = new LedEngine(LENGTH);
+  LedSegment ledStrip = ledEngine.segment(0, LENGTH, 2);
+
+  private final LedPattern blueAlliancePattern = new SolidPattern(Color.kBlue);
+  private final LedPattern redAlliancePattern = new SolidPattern(Color.kRed);
+  private final LedPattern brakePattern = new SolidPattern(Color.kGreen);
+  private final LedPattern conePattern = new SolidPattern(Color.kYellow);
+  private final LedPattern cubePattern = new SolidPattern(Color.kPurple);
+  private final LedPattern armProgressPattern =
+      new ProgressBarPattern(this::getArmProgress, Color.kWhite);
+  private double armMoveStart = 0;
+  private double armMoveGoal = Double.NaN;
+
+  private final LoopProfiler.Section periodicSection =
+      LoopProfiler.section("Superstructure.periodic()");
 
   @Log.Exclude private final Arm arm;
   @Log.Exclude private final Intake intake;
@@ -78,7 +99,7 @@ public class Superstructure extends SubsystemBase implements Loggable {
     this.arm = arm;
     this.intake = intake;
     this.extension = extension;
-    led.setLength(200);
+    led.setLength(LENGTH);
     led.start();
   }
 
@@ -196,21 +217,48 @@ public class Superstructure extends SubsystemBase implements Loggable {
     this.brakeDisplay = brakeDisplay;
   }
 
+  /**
+   * Returns how far the arm has moved towards its current goal, as a fraction of the distance from
+   * where it was when the goal was first seen.
+   *
+   * @return progress in the range [0, 1]
+   */
+  private double getArmProgress() {
+    double goal = arm.getGoalPosition();
+    if (goal != armMoveGoal) {
+      armMoveGoal = goal;
+      armMoveStart = arm.getPosition();
+    }
+    double travel = Math.abs(goal - armMoveStart);
+    if (travel < 1e-6) {
+      return 1;
+    }
+    return 1 - Math.abs(goal - arm.getPosition()) / travel;
+  }
+
   @Override
   public void periodic() {
-    Color color;
+    periodicSection.start();
+    LedPattern pattern;
     if (DriverStation.isDisabled()) {
-      color = DriverStation.getAlliance() == DriverStation.Alliance.Blue ? Color.kBlue : Color.kRed;
+      pattern =
+          DriverStation.getAlliance() == DriverStation.Alliance.Blue
+              ? blueAlliancePattern
+              : redAlliancePattern;
     } else if (brakeDisplay) {
-      color = Color.kGreen;
+      pattern = brakePattern;
     } else if (getCurrentGamePiece() == GamePiece.Cone) {
-      color = Color.kYellow;
+      pattern = conePattern;
     } else {
-      color = Color.kPurple;
+      pattern = cubePattern;
     }
-    for (int i = 0; i < ledBuffer.getLength(); i++) {
-      ledBuffer.setLED(i, color);
+    ledStrip.setPattern(pattern);
+    ledStrip.setLayer(1, DriverStation.isEnabled() && !arm.atGoal() ? armProgressPattern : null);
+
+    // Only send data to the strip when something changed, it keeps showing the last data sent
+    if (ledEngine.render(Timer.getFPGATimestamp())) {
+      led.setData(ledEngine.getBuffer());
     }
-    led.setData(ledBuffer);
+    periodicSection.stop();
   }
 }
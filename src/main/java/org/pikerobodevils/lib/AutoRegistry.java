@@ -0,0 +1,136 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.tinylog.Logger;
+
+/**
+ * Auto chooser that holds factories instead of command instances. Only the selected routine is
+ * built, while the robot is disabled, and it is rebuilt whenever the selection changes. {@link
+ * #getSelected()} then hands out the ready command with no construction cost.
+ *
+ * <p>Building happens on the main thread in {@link #disabledPeriodic()}, since command composition
+ * registers with the scheduler and is not thread safe. The construction time of each routine is
+ * logged and published to {@code /Auto/Build Time} in milliseconds.
+ */
+public class AutoRegistry {
+  private final SendableChooser<String> m_chooser = new SendableChooser<>();
+  private final Map<String, Supplier<Command>> m_factories = new LinkedHashMap<>();
+
+  private final DoublePublisher m_buildTimePublisher =
+      NetworkTableInstance.getDefault().getDoubleTopic("/Auto/Build Time").publish();
+  private final StringPublisher m_builtPublisher =
+      NetworkTableInstance.getDefault().getStringTopic("/Auto/Built").publish();
+
+  private String m_selectedOverride = null;
+  private String m_builtName = null;
+  private Command m_builtCommand = null;
+
+  /**
+   * Add the default routine.
+   *
+   * @param name name shown on the dashboard
+   * @param factory builds the routine
+   */
+  public void setDefaultOption(String name, Supplier<Command> factory) {
+    m_factories.put(name, factory);
+    m_chooser.setDefaultOption(name, name);
+  }
+
+  /**
+   * Add a routine.
+   *
+   * @param name name shown on the dashboard
+   * @param factory builds the routine
+   */
+  public void addOption(String name, Supplier<Command> factory) {
+    m_factories.put(name, factory);
+    m_chooser.addOption(name, name);
+  }
+
+  /**
+   * Returns the chooser to put on a dashboard.
+   *
+   * @return the chooser
+   */
+  public SendableChooser<String> getChooser() {
+    return m_chooser;
+  }
+
+  /**
+   * Returns the names of every routine, in the order they were added.
+   *
+   * @return routine names
+   */
+  public List<String> getNames() {
+    return new ArrayList<>(m_factories.keySet());
+  }
+
+  /**
+   * Select a routine regardless of the dashboard, e.g. from a headless simulation.
+   *
+   * @param name name of the routine, or null to use the dashboard selection again
+   */
+  public void select(String name) {
+    m_selectedOverride = name;
+  }
+
+  private String getSelectedName() {
+    return m_selectedOverride != null ? m_selectedOverride : m_chooser.getSelected();
+  }
+
+  /** Build the selected routine if it is not already built. Call from disabledPeriodic. */
+  public void disabledPeriodic() {
+    String selected = getSelectedName();
+    if (selected != null && !selected.equals(m_builtName)) {
+      build(selected);
+    }
+  }
+
+  /**
+   * Returns the selected routine. The routine is handed out once, and built again the next time
+   * the robot is disabled. If it was not built ahead of time, it is built now.
+   *
+   * @return the selected routine
+   */
+  public Command getSelected() {
+    String selected = getSelectedName();
+    if (selected == null) {
+      return Commands.none();
+    }
+    if (!selected.equals(m_builtName)) {
+      Logger.tag("Auto").warn("Auto {} was not built ahead of time", selected);
+      build(selected);
+    }
+    Command command = m_builtCommand;
+    m_builtName = null;
+    m_builtCommand = null;
+    return command;
+  }
+
+  private void build(String name) {
+    Supplier<Command> factory = m_factories.get(name);
+    long startNanos = System.nanoTime();
+    m_builtCommand = factory == null ? Commands.none() : factory.get();
+    double buildMs = (System.nanoTime() - startNanos) / 1e6;
+    m_builtName = name;
+
+    m_buildTimePublisher.set(buildMs);
+    m_builtPublisher.set(name);
+    Logger.tag("Auto").info("Built auto {} in {} ms", name, String.format("%.2f", buildMs));
+  }
+}
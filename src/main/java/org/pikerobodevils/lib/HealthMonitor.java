@@ -10,44 +10,127 @@ package org.pikerobodevils.lib;
  * Original source published at https://github.com/FRC3005/Rapid-React-2022-Public/tree/d499655448ed592c85f9cfbbd78336d8841f46e2
  */
 
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BooleanSupplier;
-
+import org.pikerobodevils.lib.profiling.LoopProfiler;
+import org.tinylog.Logger;
+
+/**
+ * Checks monitored elements for errors and re-initializes them when one is found.
+ *
+ * <p>At most {@link #setMaxChecksPerLoop} elements are checked each loop, round-robin, and checking
+ * stops early once the per-loop time budget is used, so adding devices does not increase the
+ * per-loop cost. Recovery runs on a background thread with exponential backoff between failed
+ * attempts. Each element's state and error count are published under {@code /HealthMonitor/}.
+ *
+ * <p>An element whose recovery fails {@link MonitoredElement#maxRetries} times in a row is marked
+ * {@link State#kFailed} and is never checked or recovered again until the robot code restarts, so
+ * a device that keeps failing does not tie up the recovery thread or the CAN bus.
+ */
 public class HealthMonitor extends SubsystemBase {
   private static HealthMonitor m_instance = new HealthMonitor();
 
   private static boolean m_enabled = false;
 
+  private static final long kBaseBackoffNanos = 500_000_000L;
+  private static final long kMaxBackoffNanos = 10_000_000_000L;
+
+  private final LoopProfiler.Section m_periodicSection =
+      LoopProfiler.section("HealthMonitor.periodic()");
+
+  private final ScheduledExecutorService m_recoveryExecutor =
+      Executors.newSingleThreadScheduledExecutor(
+          (runnable) -> {
+            Thread thread = new Thread(runnable, "HealthMonitor Recovery");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private int m_maxChecksPerLoop = 2;
+  private long m_loopBudgetNanos = 500_000;
+  private int m_next = 0;
+
   private HealthMonitor() {}
 
+  public enum State {
+    kHealthy,
+    kRecovering,
+    kFailed,
+  }
+
   class MonitoredElement {
+    protected final String m_name;
     protected BooleanSupplier m_monitor;
     protected BooleanSupplier m_reinit;
     protected int m_retries = 3;
-    protected int m_errorCnt = 0;
 
-    protected boolean m_hasError = true;
+    // Written by the recovery thread, read by the main loop
+    protected volatile State m_state = State.kHealthy;
+    protected volatile int m_errorCnt = 0;
+    protected volatile int m_failedAttempts = 0;
+
+    private final StringPublisher m_statePublisher;
+    private final IntegerPublisher m_errorCntPublisher;
+    private State m_publishedState = null;
+    private int m_publishedErrorCnt = -1;
 
-    public MonitoredElement(BooleanSupplier monitor, BooleanSupplier reinit) {
+    public MonitoredElement(String name, BooleanSupplier monitor, BooleanSupplier reinit) {
+      m_name = name;
       m_monitor = monitor;
       m_reinit = reinit;
+      var table = NetworkTableInstance.getDefault().getTable("HealthMonitor").getSubTable(name);
+      m_statePublisher = table.getStringTopic("State").publish();
+      m_errorCntPublisher = table.getIntegerTopic("Error Count").publish();
     }
 
     public boolean hasError() {
-      return m_hasError;
+      return m_state != State.kHealthy;
+    }
+
+    public State getState() {
+      return m_state;
+    }
+
+    public int getErrorCount() {
+      return m_errorCnt;
     }
 
     public void maxRetries(int retries) {
       m_retries = retries;
     }
+
+    private void publish() {
+      State state = m_state;
+      if (state != m_publishedState) {
+        m_statePublisher.set(state.name());
+        m_publishedState = state;
+      }
+      int errorCnt = m_errorCnt;
+      if (errorCnt != m_publishedErrorCnt) {
+        m_errorCntPublisher.set(errorCnt);
+        m_publishedErrorCnt = errorCnt;
+      }
+    }
   }
 
-  private HashSet<MonitoredElement> m_elements = new HashSet<MonitoredElement>();
+  private List<MonitoredElement> m_elements = new ArrayList<MonitoredElement>();
 
   public static MonitoredElement monitor(
       BooleanSupplier monitorFunction, BooleanSupplier reinitFunction) {
-    MonitoredElement el = m_instance.new MonitoredElement(monitorFunction, reinitFunction);
+    return monitor("Element " + m_instance.m_elements.size(), monitorFunction, reinitFunction);
+  }
+
+  public static MonitoredElement monitor(
+      String name, BooleanSupplier monitorFunction, BooleanSupplier reinitFunction) {
+    MonitoredElement el = m_instance.new MonitoredElement(name, monitorFunction, reinitFunction);
     m_instance.m_elements.add(el);
     return el;
   }
@@ -56,24 +139,89 @@ public class HealthMonitor extends SubsystemBase {
     m_enabled = enable;
   }
 
+  /**
+   * Set the maximum number of elements checked each loop.
+   *
+   * @param checks maximum checks per loop
+   */
+  public static void setMaxChecksPerLoop(int checks) {
+    m_instance.m_maxChecksPerLoop = Math.max(1, checks);
+  }
+
+  /**
+   * Set the time budget for checking elements each loop. At least one element is always checked.
+   *
+   * @param seconds budget in seconds
+   */
+  public static void setLoopBudget(double seconds) {
+    m_instance.m_loopBudgetNanos = (long) (seconds * 1e9);
+  }
+
   @Override
   public void periodic() {
-    if (!m_enabled) {
+    if (!m_enabled || m_elements.isEmpty()) {
       return;
     }
 
-    for (MonitoredElement el : m_elements) {
-      if (el.m_monitor.getAsBoolean()) {
-        // TODO: Log error occured
-        if (el.m_errorCnt < el.m_retries) {
-          el.m_hasError = el.m_reinit.getAsBoolean();
+    m_periodicSection.start();
+    long startNanos = System.nanoTime();
+    int size = m_elements.size();
+    int checks = 0;
+    for (int i = 0; i < size && checks < m_maxChecksPerLoop; i++) {
+      if (checks > 0 && System.nanoTime() - startNanos > m_loopBudgetNanos) {
+        break;
+      }
+      MonitoredElement el = m_elements.get(m_next);
+      m_next = (m_next + 1) % size;
+
+      // Recovering and failed elements are left to the recovery thread
+      if (el.m_state == State.kHealthy) {
+        checks++;
+        if (el.m_monitor.getAsBoolean()) {
           el.m_errorCnt++;
-        } else {
-          el.m_hasError = true;
+          el.m_state = State.kRecovering;
+          Logger.tag("HealthMonitor").warn("{}: error detected, recovering", el.m_name);
+          m_recoveryExecutor.execute(() -> recover(el));
         }
-      } else {
-        el.m_errorCnt--;
       }
+      el.publish();
+    }
+    m_periodicSection.stop();
+  }
+
+  /** Runs on the recovery thread. */
+  private void recover(MonitoredElement el) {
+    boolean success;
+    try {
+      success = el.m_reinit.getAsBoolean();
+    } catch (RuntimeException e) {
+      Logger.tag("HealthMonitor").error(e, "{}: exception during recovery", el.m_name);
+      success = false;
+    }
+
+    if (success) {
+      el.m_failedAttempts = 0;
+      el.m_state = State.kHealthy;
+      Logger.tag("HealthMonitor").info("{}: recovered", el.m_name);
+      return;
+    }
+
+    int attempts = ++el.m_failedAttempts;
+    if (attempts >= el.m_retries) {
+      // Terminal, periodic() skips failed elements
+      el.m_state = State.kFailed;
+      Logger.tag("HealthMonitor")
+          .error("{}: recovery failed after {} attempts", el.m_name, attempts);
+      return;
     }
+    long backoff = Math.min(kMaxBackoffNanos, kBaseBackoffNanos << (attempts - 1));
+    Logger.tag("HealthMonitor")
+        .warn(
+            "{}: recovery attempt {} of {} failed, retrying in {} ms",
+            el.m_name,
+            attempts,
+            el.m_retries,
+            backoff / 1_000_000);
+    m_recoveryExecutor.schedule(() -> recover(el), backoff, TimeUnit.NANOSECONDS);
   }
 }
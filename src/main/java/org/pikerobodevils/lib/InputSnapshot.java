@@ -0,0 +1,234 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib;
+
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Reads every registered input signal exactly once per loop. Subsystems register the expensive
+ * reads (CAN, JNI, sensors) here and read the cached value, so every consumer in a loop sees the
+ * same value and each signal only costs one read.
+ *
+ * <p>{@link #update()} should be the first thing called in robotPeriodic. Signals are also read
+ * once when registered, so values are valid during construction.
+ *
+ * <p>With {@link #startLogging} every input is logged under {@code Inputs/<name>} when it changes,
+ * along with the loop count under {@code Inputs/Loop}, all at the loop's timestamp. Setting a
+ * {@link Source} replaces the hardware reads, which is how a log is replayed.
+ */
+public class InputSnapshot {
+  public static final String kLogPrefix = "Inputs/";
+  public static final String kLoopEntry = kLogPrefix + "Loop";
+
+  private static final List<DoubleInput> s_doubleInputs = new ArrayList<>();
+  private static final List<BooleanInput> s_booleanInputs = new ArrayList<>();
+
+  private static Source s_source;
+  private static DataLog s_log;
+  private static IntegerLogEntry s_loopEntry;
+  private static long s_loopCount;
+
+  private InputSnapshot() {}
+
+  /** Provides inputs in place of the hardware, e.g. from a log. */
+  public interface Source {
+    /**
+     * Returns the reader for a double input.
+     *
+     * @param name name the input was registered with
+     * @return reader, or null to read the hardware
+     */
+    DoubleSupplier getDouble(String name);
+
+    /**
+     * Returns the reader for a boolean input.
+     *
+     * @param name name the input was registered with
+     * @return reader, or null to read the hardware
+     */
+    BooleanSupplier getBoolean(String name);
+  }
+
+  /** A double signal cached once per loop. */
+  public static class DoubleInput {
+    private final String m_name;
+    private DoubleSupplier m_reader;
+    private double m_value;
+    private DoubleLogEntry m_logEntry;
+    private double m_loggedValue;
+
+    private DoubleInput(String name, DoubleSupplier reader) {
+      m_name = name;
+      m_reader = reader;
+      useSource();
+      m_value = m_reader.getAsDouble();
+    }
+
+    /**
+     * Returns the value read at the start of this loop.
+     *
+     * @return cached value
+     */
+    public double get() {
+      return m_value;
+    }
+
+    public String getName() {
+      return m_name;
+    }
+
+    private void useSource() {
+      DoubleSupplier reader = s_source == null ? null : s_source.getDouble(m_name);
+      if (reader != null) {
+        m_reader = reader;
+      }
+    }
+
+    private void startLogging() {
+      m_logEntry = new DoubleLogEntry(s_log, kLogPrefix + m_name);
+      m_loggedValue = Double.NaN;
+    }
+
+    private void update(long timestamp) {
+      m_value = m_reader.getAsDouble();
+      // Compare bits, so NaN is only logged once
+      if (m_logEntry != null
+          && Double.doubleToLongBits(m_value) != Double.doubleToLongBits(m_loggedValue)) {
+        m_logEntry.append(m_value, timestamp);
+        m_loggedValue = m_value;
+      }
+    }
+  }
+
+  /** A boolean signal cached once per loop. */
+  public static class BooleanInput {
+    private final String m_name;
+    private BooleanSupplier m_reader;
+    private boolean m_value;
+    private BooleanLogEntry m_logEntry;
+    private boolean m_logged;
+    private boolean m_loggedValue;
+
+    private BooleanInput(String name, BooleanSupplier reader) {
+      m_name = name;
+      m_reader = reader;
+      useSource();
+      m_value = m_reader.getAsBoolean();
+    }
+
+    /**
+     * Returns the value read at the start of this loop.
+     *
+     * @return cached value
+     */
+    public boolean get() {
+      return m_value;
+    }
+
+    public String getName() {
+      return m_name;
+    }
+
+    private void useSource() {
+      BooleanSupplier reader = s_source == null ? null : s_source.getBoolean(m_name);
+      if (reader != null) {
+        m_reader = reader;
+      }
+    }
+
+    private void startLogging() {
+      m_logEntry = new BooleanLogEntry(s_log, kLogPrefix + m_name);
+      m_logged = false;
+    }
+
+    private void update(long timestamp) {
+      m_value = m_reader.getAsBoolean();
+      if (m_logEntry != null && (!m_logged || m_value != m_loggedValue)) {
+        m_logEntry.append(m_value, timestamp);
+        m_logged = true;
+        m_loggedValue = m_value;
+      }
+    }
+  }
+
+  /**
+   * Register a double signal.
+   *
+   * @param name unique name of the signal, e.g. "Arm/Position"
+   * @param reader reads the signal from hardware
+   * @return the cached input
+   */
+  public static DoubleInput registerDouble(String name, DoubleSupplier reader) {
+    DoubleInput input = new DoubleInput(name, reader);
+    if (s_log != null) {
+      input.startLogging();
+    }
+    s_doubleInputs.add(input);
+    return input;
+  }
+
+  /**
+   * Register a boolean signal.
+   *
+   * @param name unique name of the signal
+   * @param reader reads the signal from hardware
+   * @return the cached input
+   */
+  public static BooleanInput registerBoolean(String name, BooleanSupplier reader) {
+    BooleanInput input = new BooleanInput(name, reader);
+    if (s_log != null) {
+      input.startLogging();
+    }
+    s_booleanInputs.add(input);
+    return input;
+  }
+
+  /**
+   * Log every input, including ones registered later, to a DataLog.
+   *
+   * @param log log to write to
+   */
+  public static void startLogging(DataLog log) {
+    s_log = log;
+    s_loopEntry = new IntegerLogEntry(log, kLoopEntry);
+    s_doubleInputs.forEach(DoubleInput::startLogging);
+    s_booleanInputs.forEach(BooleanInput::startLogging);
+  }
+
+  /**
+   * Read inputs from a source instead of the hardware, including ones registered later. Inputs
+   * the source does not provide keep reading the hardware.
+   *
+   * @param source source of the inputs
+   */
+  public static void setSource(Source source) {
+    s_source = source;
+    s_doubleInputs.forEach(DoubleInput::useSource);
+    s_booleanInputs.forEach(BooleanInput::useSource);
+  }
+
+  /** Read every registered signal. Call at the start of robotPeriodic. */
+  public static void update() {
+    long timestamp = WPIUtilJNI.now();
+    if (s_loopEntry != null) {
+      s_loopEntry.append(s_loopCount++, timestamp);
+    }
+    for (int i = 0; i < s_doubleInputs.size(); i++) {
+      s_doubleInputs.get(i).update(timestamp);
+    }
+    for (int i = 0; i < s_booleanInputs.size(); i++) {
+      s_booleanInputs.get(i).update(timestamp);
+    }
+  }
+}
@@ -11,11 +11,14 @@ import com.revrobotics.CANSparkMax;
 import edu.wpi.first.util.datalog.StringLogEntry;
 import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.util.WPILibVersion;
+import org.pikerobodevils.lib.logging.LogLevels;
+import org.tinylog.Level;
 import org.tinylog.Logger;
 
 public class LogUtils {
   private static StringLogEntry m_messageLog;
   public static final String METADATA_PATH = "/RealMetadata/";
+  private static final LogLevels.Tag s_metadataLog = LogLevels.tag("Metadata");
 
   private static void init() {
     if (m_messageLog == null) {
@@ -27,7 +30,9 @@ public class LogUtils {
     var entry = new StringLogEntry(DataLogManager.getLog(), METADATA_PATH + key);
     entry.append(value.toString());
     entry.finish();
-    Logger.tag("Metadata").info(String.format("%-25s%s", key + ":", value));
+    if (s_metadataLog.isEnabled(Level.INFO)) {
+      s_metadataLog.info(String.format("%-25s%s", key + ":", value));
+    }
   }
 
   public static void logManifestMetadata(Object object) {
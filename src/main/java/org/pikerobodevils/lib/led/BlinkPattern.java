@@ -0,0 +1,41 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.led;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+import edu.wpi.first.wpilibj.util.Color8Bit;
+
+/** Alternates the whole segment between two colors. */
+public class BlinkPattern implements LedPattern {
+  private final Color8Bit[] m_colors;
+  private final double m_halfPeriod;
+
+  /**
+   * Create a blink pattern.
+   *
+   * @param on color shown for the first half of each period
+   * @param off color shown for the second half of each period
+   * @param period blink period in seconds
+   */
+  public BlinkPattern(Color on, Color off, double period) {
+    m_colors = new Color8Bit[] {new Color8Bit(on), new Color8Bit(off)};
+    m_halfPeriod = period / 2;
+  }
+
+  @Override
+  public int getFrame(double timestamp, int length) {
+    return (int) (timestamp / m_halfPeriod) & 1;
+  }
+
+  @Override
+  public void render(AddressableLEDBuffer buffer, int start, int length, int frame) {
+    Color8Bit color = m_colors[frame];
+    for (int i = start; i < start + length; i++) {
+      buffer.setRGB(i, color.red, color.green, color.blue);
+    }
+  }
+}
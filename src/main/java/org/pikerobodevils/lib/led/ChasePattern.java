@@ -0,0 +1,51 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.led;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+import edu.wpi.first.wpilibj.util.Color8Bit;
+
+/** A block of pixels moving along the segment over a background color. */
+public class ChasePattern implements LedPattern {
+  private final Color8Bit m_color;
+  private final Color8Bit m_background;
+  private final int m_width;
+  private final double m_stepPeriod;
+
+  /**
+   * Create a chase pattern.
+   *
+   * @param color color of the moving block
+   * @param background color of the rest of the segment
+   * @param width width of the moving block in pixels
+   * @param stepPeriod time in seconds to move the block by one pixel
+   */
+  public ChasePattern(Color color, Color background, int width, double stepPeriod) {
+    m_color = new Color8Bit(color);
+    m_background = new Color8Bit(background);
+    m_width = width;
+    m_stepPeriod = stepPeriod;
+  }
+
+  @Override
+  public int getFrame(double timestamp, int length) {
+    return (int) ((long) (timestamp / m_stepPeriod) % length);
+  }
+
+  @Override
+  public void render(AddressableLEDBuffer buffer, int start, int length, int frame) {
+    for (int i = 0; i < length; i++) {
+      // Distance behind the head of the block, wrapping around the segment
+      int offset = frame - i;
+      if (offset < 0) {
+        offset += length;
+      }
+      Color8Bit color = offset < m_width ? m_color : m_background;
+      buffer.setRGB(start + i, color.red, color.green, color.blue);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.led;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders layered patterns onto segments of an LED strip, tracking which segments have changed.
+ * Call {@link #render} every loop and only push the buffer to the strip when it returns true; the
+ * strip keeps showing the last data it was sent.
+ */
+public class LedEngine {
+  private final AddressableLEDBuffer m_buffer;
+  private final List<LedSegment> m_segments = new ArrayList<>();
+
+  /**
+   * Create an engine for a strip.
+   *
+   * @param length number of LEDs on the strip
+   */
+  public LedEngine(int length) {
+    m_buffer = new AddressableLEDBuffer(length);
+  }
+
+  /**
+   * Create a segment. Segments should not overlap.
+   *
+   * @param start index of the first LED in the segment
+   * @param length number of LEDs in the segment
+   * @param layerCount number of pattern layers the segment supports
+   * @return the segment
+   */
+  public LedSegment segment(int start, int length, int layerCount) {
+    if (start < 0 || length <= 0 || start + length > m_buffer.getLength()) {
+      throw new IllegalArgumentException("Segment does not fit on the strip");
+    }
+    LedSegment segment = new LedSegment(m_buffer, start, length, layerCount);
+    m_segments.add(segment);
+    return segment;
+  }
+
+  /**
+   * Redraw any segments whose patterns or frames have changed.
+   *
+   * @param timestamp current time in seconds
+   * @return true if the buffer changed and should be sent to the strip
+   */
+  public boolean render(double timestamp) {
+    boolean dirty = false;
+    for (int i = 0; i < m_segments.size(); i++) {
+      dirty |= m_segments.get(i).render(timestamp);
+    }
+    return dirty;
+  }
+
+  public AddressableLEDBuffer getBuffer() {
+    return m_buffer;
+  }
+}
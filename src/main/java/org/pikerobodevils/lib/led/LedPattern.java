@@ -0,0 +1,34 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.led;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+
+/**
+ * A pattern drawn onto a segment of an LED strip. Patterns are split into frames: the engine only
+ * redraws a segment when the frame returned by {@link #getFrame} changes, so static patterns are
+ * drawn once and animations are drawn once per frame step rather than once per loop.
+ */
+public interface LedPattern {
+  /**
+   * Returns the frame that should be shown at the given time. Static patterns always return 0.
+   *
+   * @param timestamp current time in seconds
+   * @param length length of the segment the pattern is drawn on
+   * @return frame index
+   */
+  int getFrame(double timestamp, int length);
+
+  /**
+   * Draw a frame of the pattern. Layers drawn on top of another pattern may leave pixels untouched.
+   *
+   * @param buffer buffer to draw into
+   * @param start index of the first pixel of the segment
+   * @param length length of the segment
+   * @param frame frame to draw, as returned by {@link #getFrame}
+   */
+  void render(AddressableLEDBuffer buffer, int start, int length, int frame);
+}
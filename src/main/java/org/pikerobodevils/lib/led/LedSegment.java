@@ -0,0 +1,93 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.led;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+
+/**
+ * A contiguous range of an LED strip showing a stack of pattern layers. Layer 0 is drawn first and
+ * higher layers are drawn on top of it. The segment is only redrawn when a layer is swapped or the
+ * frame of any layer changes.
+ */
+public class LedSegment {
+  private final AddressableLEDBuffer m_buffer;
+  private final int m_start;
+  private final int m_length;
+
+  private final LedPattern[] m_layers;
+  private final LedPattern[] m_renderedLayers;
+  private final int[] m_renderedFrames;
+  private boolean m_forceRender = true;
+
+  LedSegment(AddressableLEDBuffer buffer, int start, int length, int layerCount) {
+    m_buffer = buffer;
+    m_start = start;
+    m_length = length;
+    m_layers = new LedPattern[layerCount];
+    m_renderedLayers = new LedPattern[layerCount];
+    m_renderedFrames = new int[layerCount];
+  }
+
+  /**
+   * Set the base pattern of the segment.
+   *
+   * @param pattern pattern to show, or null to turn the segment off
+   */
+  public void setPattern(LedPattern pattern) {
+    setLayer(0, pattern);
+  }
+
+  /**
+   * Set the pattern on one layer of the segment.
+   *
+   * @param layer layer index, higher layers are drawn on top
+   * @param pattern pattern to show, or null to clear the layer
+   */
+  public void setLayer(int layer, LedPattern pattern) {
+    m_layers[layer] = pattern;
+  }
+
+  public int getStart() {
+    return m_start;
+  }
+
+  public int getLength() {
+    return m_length;
+  }
+
+  /**
+   * Redraw the segment if anything has changed.
+   *
+   * @param timestamp current time in seconds
+   * @return true if the buffer was modified
+   */
+  boolean render(double timestamp) {
+    boolean dirty = m_forceRender;
+    for (int i = 0; i < m_layers.length; i++) {
+      LedPattern layer = m_layers[i];
+      int frame = layer == null ? -1 : layer.getFrame(timestamp, m_length);
+      if (layer != m_renderedLayers[i] || frame != m_renderedFrames[i]) {
+        dirty = true;
+      }
+      m_renderedLayers[i] = layer;
+      m_renderedFrames[i] = frame;
+    }
+    if (!dirty) {
+      return false;
+    }
+    m_forceRender = false;
+
+    for (int i = m_start; i < m_start + m_length; i++) {
+      m_buffer.setRGB(i, 0, 0, 0);
+    }
+    for (int i = 0; i < m_layers.length; i++) {
+      if (m_renderedLayers[i] != null) {
+        m_renderedLayers[i].render(m_buffer, m_start, m_length, m_renderedFrames[i]);
+      }
+    }
+    return true;
+  }
+}
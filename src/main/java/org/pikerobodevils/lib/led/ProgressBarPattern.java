@@ -0,0 +1,45 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.led;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+import edu.wpi.first.wpilibj.util.Color8Bit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Lights a fraction of the segment. Pixels past the lit portion are left untouched, so this is
+ * meant to be layered over another pattern. The frame is the number of lit pixels, so the segment
+ * is only redrawn when that count changes.
+ */
+public class ProgressBarPattern implements LedPattern {
+  private final DoubleSupplier m_progress;
+  private final Color8Bit m_color;
+
+  /**
+   * Create a progress bar pattern.
+   *
+   * @param progress supplies the fraction of the segment to light, in the range [0, 1]
+   * @param color color of the lit pixels
+   */
+  public ProgressBarPattern(DoubleSupplier progress, Color color) {
+    m_progress = progress;
+    m_color = new Color8Bit(color);
+  }
+
+  @Override
+  public int getFrame(double timestamp, int length) {
+    return (int) Math.round(MathUtil.clamp(m_progress.getAsDouble(), 0, 1) * length);
+  }
+
+  @Override
+  public void render(AddressableLEDBuffer buffer, int start, int length, int frame) {
+    for (int i = start; i < start + frame; i++) {
+      buffer.setRGB(i, m_color.red, m_color.green, m_color.blue);
+    }
+  }
+}
@@ -0,0 +1,31 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.led;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+import edu.wpi.first.wpilibj.util.Color8Bit;
+
+/** Fills the whole segment with one color. */
+public class SolidPattern implements LedPattern {
+  private final Color8Bit m_color;
+
+  public SolidPattern(Color color) {
+    m_color = new Color8Bit(color);
+  }
+
+  @Override
+  public int getFrame(double timestamp, int length) {
+    return 0;
+  }
+
+  @Override
+  public void render(AddressableLEDBuffer buffer, int start, int length, int frame) {
+    for (int i = start; i < start + length; i++) {
+      buffer.setRGB(i, m_color.red, m_color.green, m_color.blue);
+    }
+  }
+}
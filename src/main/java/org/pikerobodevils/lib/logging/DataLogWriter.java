@@ -5,16 +5,64 @@
 
 package org.pikerobodevils.lib.logging;
 
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
 import edu.wpi.first.util.datalog.StringLogEntry;
 import edu.wpi.first.wpilibj.DataLogManager;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.tinylog.Level;
 import org.tinylog.core.LogEntry;
+import org.tinylog.provider.InternalLogger;
 import org.tinylog.writers.AbstractFormatPatternWriter;
 
+/**
+ * Writes tinylog entries to a DataLog string entry.
+ *
+ * <p>Supported properties, in addition to the usual format pattern properties:
+ *
+ * <ul>
+ *   <li>{@code entryKey}: DataLog entry name, defaults to "tinylog"
+ *   <li>{@code async}: if true, entries are queued and rendered on a background thread
+ *   <li>{@code capacity}: async queue capacity, defaults to 1024
+ *   <li>{@code overflow}: what to do when the async queue is full, one of "dropOldest" (default),
+ *       "dropNewest" or "block"
+ * </ul>
+ *
+ * <p>In async mode the number of queued and dropped entries are logged under {@code
+ * <entryKey>/queued} and {@code <entryKey>/dropped}.
+ */
 public class DataLogWriter extends AbstractFormatPatternWriter {
+  private static final int kDefaultCapacity = 1024;
+  private static final int kBatchSize = 64;
+  private static final long kIdleNanos = 5_000_000;
+  private static final long kBlockNanos = 50_000;
+
+  public enum OverflowPolicy {
+    DROP_OLDEST,
+    DROP_NEWEST,
+    BLOCK,
+  }
 
   StringLogEntry m_log;
 
+  private final RingBuffer<LogEntry> m_queue;
+  private final OverflowPolicy m_overflowPolicy;
+  private final Thread m_thread;
+  private volatile boolean m_running = true;
+
+  private final AtomicLong m_queued = new AtomicLong();
+  private final AtomicLong m_dropped = new AtomicLong();
+  private IntegerLogEntry m_queuedLog;
+  private IntegerLogEntry m_droppedLog;
+  private long m_lastQueued = -1;
+  private long m_lastDropped = -1;
+
+  private final RingBuffer.Sink<LogEntry> m_appender =
+      (entry, timestamp) -> m_log.append(render(entry), timestamp);
+  private final RingBuffer.Sink<LogEntry> m_discard = (entry, timestamp) -> {};
+
   public DataLogWriter(Map<String, String> properties) {
     super(properties);
     String entryKey = properties.get("entryKey");
@@ -22,16 +70,136 @@ public class DataLogWriter extends AbstractFormatPatternWriter {
       entryKey = "tinylog";
     }
     m_log = new StringLogEntry(DataLogManager.getLog(), entryKey);
+
+    if (!Boolean.parseBoolean(properties.get("async"))) {
+      m_queue = null;
+      m_overflowPolicy = null;
+      m_thread = null;
+      return;
+    }
+
+    int capacity = kDefaultCapacity;
+    String capacityString = properties.get("capacity");
+    if (capacityString != null) {
+      try {
+        capacity = Integer.parseInt(capacityString.trim());
+      } catch (NumberFormatException e) {
+        InternalLogger.log(Level.ERROR, "Invalid capacity \"" + capacityString + "\"");
+      }
+    }
+    m_queue = new RingBuffer<>(capacity);
+    m_overflowPolicy = parseOverflowPolicy(properties.get("overflow"));
+
+    m_queuedLog = new IntegerLogEntry(DataLogManager.getLog(), entryKey + "/queued");
+    m_droppedLog = new IntegerLogEntry(DataLogManager.getLog(), entryKey + "/dropped");
+
+    m_thread = new Thread(this::run, "DataLogWriter");
+    m_thread.setDaemon(true);
+    m_thread.start();
+  }
+
+  private static OverflowPolicy parseOverflowPolicy(String overflow) {
+    if (overflow == null || "dropOldest".equalsIgnoreCase(overflow)) {
+      return OverflowPolicy.DROP_OLDEST;
+    } else if ("dropNewest".equalsIgnoreCase(overflow)) {
+      return OverflowPolicy.DROP_NEWEST;
+    } else if ("block".equalsIgnoreCase(overflow)) {
+      return OverflowPolicy.BLOCK;
+    }
+    InternalLogger.log(
+        Level.ERROR,
+        "Overflow must be \"dropOldest\", \"dropNewest\" or \"block\", \""
+            + overflow
+            + "\" is invalid");
+    return OverflowPolicy.DROP_OLDEST;
   }
 
   @Override
   public void write(LogEntry logEntry) throws Exception {
-    m_log.append(render(logEntry));
+    if (m_queue == null) {
+      m_log.append(render(logEntry));
+      return;
+    }
+
+    // Stamp on the caller's thread so entries line up with the rest of the log
+    long timestamp = WPIUtilJNI.now();
+    if (!m_queue.offer(logEntry, timestamp)) {
+      switch (m_overflowPolicy) {
+        case DROP_NEWEST:
+          m_dropped.incrementAndGet();
+          return;
+        case BLOCK:
+          while (!m_queue.offer(logEntry, timestamp)) {
+            LockSupport.unpark(m_thread);
+            LockSupport.parkNanos(kBlockNanos);
+          }
+          break;
+        case DROP_OLDEST:
+        default:
+          do {
+            if (m_queue.poll(m_discard)) {
+              m_dropped.incrementAndGet();
+            }
+          } while (!m_queue.offer(logEntry, timestamp));
+          break;
+      }
+    }
+    m_queued.incrementAndGet();
+  }
+
+  private void run() {
+    while (m_running) {
+      if (drain() == 0) {
+        LockSupport.parkNanos(kIdleNanos);
+      }
+    }
+    while (drain() > 0) {}
+  }
+
+  /**
+   * Render and append up to one batch of entries.
+   *
+   * @return number of entries appended
+   */
+  private int drain() {
+    int count = 0;
+    while (count < kBatchSize && m_queue.poll(m_appender)) {
+      count++;
+    }
+    long queued = m_queued.get();
+    if (queued != m_lastQueued) {
+      m_queuedLog.append(queued);
+      m_lastQueued = queued;
+    }
+    long dropped = m_dropped.get();
+    if (dropped != m_lastDropped) {
+      m_droppedLog.append(dropped);
+      m_lastDropped = dropped;
+    }
+    return count;
+  }
+
+  public long getQueuedCount() {
+    return m_queued.get();
+  }
+
+  public long getDroppedCount() {
+    return m_dropped.get();
   }
 
   @Override
-  public void flush() throws Exception {}
+  public void flush() throws Exception {
+    if (m_thread != null) {
+      LockSupport.unpark(m_thread);
+    }
+  }
 
   @Override
-  public void close() throws Exception {}
+  public void close() throws Exception {
+    if (m_thread != null) {
+      m_running = false;
+      LockSupport.unpark(m_thread);
+      m_thread.join(1000);
+    }
+  }
 }
@@ -8,7 +8,11 @@ package org.pikerobodevils.lib.logging;
 import edu.wpi.first.hal.DriverStationJNI;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import org.tinylog.Level;
 import org.tinylog.core.ConfigurationParser;
 import org.tinylog.core.LogEntry;
@@ -16,10 +20,84 @@ import org.tinylog.core.LogEntryValue;
 import org.tinylog.provider.InternalLogger;
 import org.tinylog.writers.AbstractFormatPatternWriter;
 
+/**
+ * Writes tinylog entries to stdout, and entries at or above the error level to the Driver Station
+ * console.
+ *
+ * <p>Entries are queued and rendered on a background thread, so logging never blocks the caller
+ * and the JNI calls happen off the main thread. If the queue is full the entry is dropped.
+ * Entries below the error level are printed to stdout as they come. Entries sent to the Driver
+ * Station are throttled so they can't flood the DS link: identical entries (same level, tag and
+ * message) within the repeat window are collapsed, the first is sent and the rest are sent once as
+ * a single "(repeated xN)" summary when the window ends, and each tag is rate limited by a token
+ * bucket, entries over the limit are dropped and counted on the next entry from that tag.
+ *
+ * <p>Supported properties, in addition to the usual format pattern properties:
+ *
+ * <ul>
+ *   <li>{@code stream}: "out", "err" or "err@LEVEL", as for the tinylog console writer
+ *   <li>{@code capacity}: queue capacity, defaults to 256
+ *   <li>{@code window}: repeat window in seconds, defaults to 1
+ *   <li>{@code rate}: DS entries per second allowed per tag, defaults to 2
+ *   <li>{@code burst}: DS entries allowed at once per tag, defaults to 5
+ * </ul>
+ */
 public class DsConsoleWriter extends AbstractFormatPatternWriter {
+  private static final int kDefaultCapacity = 256;
+  private static final double kDefaultWindow = 1;
+  private static final double kDefaultRate = 2;
+  private static final double kDefaultBurst = 5;
+  private static final long kIdleNanos = 10_000_000;
 
   private final Level errorLevel;
 
+  private final RingBuffer<LogEntry> m_queue;
+  private final long m_windowNanos;
+  private final double m_rate;
+  private final double m_burst;
+  private final Thread m_thread;
+  private volatile boolean m_running = true;
+  private final AtomicLong m_overflowed = new AtomicLong();
+
+  // Only used on the writer thread
+  private final Map<String, Repeat> m_repeats = new HashMap<>();
+  private final Map<String, TokenBucket> m_buckets = new HashMap<>();
+  private long m_reportedOverflowed;
+  private final RingBuffer.Sink<LogEntry> m_handler = this::handle;
+
+  /** The first of a run of identical DS entries, and how many followed it within the window. */
+  private static class Repeat {
+    final long startNanos;
+    LogEntry last;
+    int count;
+
+    Repeat(LogEntry entry, long startNanos) {
+      this.startNanos = startNanos;
+      this.last = entry;
+    }
+  }
+
+  /** Per-tag rate limit. */
+  private class TokenBucket {
+    double tokens = m_burst;
+    long lastNanos;
+    int dropped;
+
+    TokenBucket(long nowNanos) {
+      lastNanos = nowNanos;
+    }
+
+    boolean tryTake(long nowNanos) {
+      tokens = Math.min(m_burst, tokens + (nowNanos - lastNanos) / 1e9 * m_rate);
+      lastNanos = nowNanos;
+      if (tokens < 1) {
+        return false;
+      }
+      tokens--;
+      return true;
+    }
+  }
+
   public DsConsoleWriter() {
     this(Collections.<String, String>emptyMap());
   }
@@ -61,28 +139,140 @@ public class DsConsoleWriter extends AbstractFormatPatternWriter {
           "Stream must be \"out\" or \"err\", \"" + stream + "\" is an invalid stream name");
       errorLevel = levelStream;
     }
+
+    m_queue = new RingBuffer<>((int) parseNumber(properties, "capacity", kDefaultCapacity));
+    m_windowNanos = (long) (parseNumber(properties, "window", kDefaultWindow) * 1e9);
+    m_rate = parseNumber(properties, "rate", kDefaultRate);
+    m_burst = Math.max(1, parseNumber(properties, "burst", kDefaultBurst));
+
+    m_thread = new Thread(this::run, "DsConsoleWriter");
+    m_thread.setDaemon(true);
+    m_thread.start();
+  }
+
+  private static double parseNumber(Map<String, String> properties, String key, double fallback) {
+    String value = properties.get(key);
+    if (value == null) {
+      return fallback;
+    }
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      InternalLogger.log(Level.ERROR, "Invalid " + key + " \"" + value + "\"");
+      return fallback;
+    }
   }
 
   @Override
   public Collection<LogEntryValue> getRequiredLogEntryValues() {
     Collection<LogEntryValue> logEntryValues = super.getRequiredLogEntryValues();
     logEntryValues.add(LogEntryValue.LEVEL);
+    logEntryValues.add(LogEntryValue.TAG);
+    logEntryValues.add(LogEntryValue.MESSAGE);
     return logEntryValues;
   }
 
   @Override
   public void write(final LogEntry logEntry) {
-    if (logEntry.getLevel().ordinal() < errorLevel.ordinal()) {
-      System.out.print(render(logEntry));
-    } else {
-      DriverStationJNI.sendError(
-          logEntry.getLevel().equals(Level.ERROR), 1, false, render(logEntry), "", "", true);
+    if (!m_queue.offer(logEntry, System.nanoTime())) {
+      m_overflowed.incrementAndGet();
+    }
+  }
+
+  private void run() {
+    while (m_running) {
+      boolean idle = true;
+      while (m_queue.poll(m_handler)) {
+        idle = false;
+      }
+      endRepeats(System.nanoTime(), false);
+      reportOverflow();
+      if (idle) {
+        LockSupport.parkNanos(kIdleNanos);
+      }
+    }
+    while (m_queue.poll(m_handler)) {}
+    endRepeats(System.nanoTime(), true);
+    reportOverflow();
+  }
+
+  private void handle(LogEntry entry, long nowNanos) {
+    if (entry.getLevel().ordinal() < errorLevel.ordinal()) {
+      System.out.print(render(entry));
+      return;
+    }
+    String key = entry.getLevel().ordinal() + "\0" + entry.getTag() + "\0" + entry.getMessage();
+    Repeat repeat = m_repeats.get(key);
+    if (repeat != null && nowNanos - repeat.startNanos < m_windowNanos) {
+      repeat.last = entry;
+      repeat.count++;
+      return;
+    }
+    if (repeat != null) {
+      endRepeat(repeat, nowNanos);
+    }
+    m_repeats.put(key, new Repeat(entry, nowNanos));
+    emit(entry, "", nowNanos);
+  }
+
+  private void endRepeats(long nowNanos, boolean all) {
+    Iterator<Repeat> repeats = m_repeats.values().iterator();
+    while (repeats.hasNext()) {
+      Repeat repeat = repeats.next();
+      if (all || nowNanos - repeat.startNanos >= m_windowNanos) {
+        endRepeat(repeat, nowNanos);
+        repeats.remove();
+      }
+    }
+  }
+
+  private void endRepeat(Repeat repeat, long nowNanos) {
+    if (repeat.count > 0) {
+      emit(repeat.last, " (repeated x" + repeat.count + ")", nowNanos);
+    }
+  }
+
+  private void emit(LogEntry entry, String suffix, long nowNanos) {
+    String tag = entry.getTag() == null ? "" : entry.getTag();
+    TokenBucket bucket = m_buckets.get(tag);
+    if (bucket == null) {
+      bucket = new TokenBucket(nowNanos);
+      m_buckets.put(tag, bucket);
+    }
+    if (!bucket.tryTake(nowNanos)) {
+      bucket.dropped++;
+      return;
+    }
+    if (bucket.dropped > 0) {
+      suffix += " (" + bucket.dropped + " dropped)";
+      bucket.dropped = 0;
+    }
+
+    String text = render(entry);
+    if (!suffix.isEmpty()) {
+      text = text.stripTrailing() + suffix + System.lineSeparator();
+    }
+    DriverStationJNI.sendError(entry.getLevel().equals(Level.ERROR), 1, false, text, "", "", true);
+  }
+
+  private void reportOverflow() {
+    long overflowed = m_overflowed.get();
+    if (overflowed != m_reportedOverflowed) {
+      System.out.println(
+          "DsConsoleWriter: " + (overflowed - m_reportedOverflowed) + " entries dropped");
+      m_reportedOverflowed = overflowed;
     }
   }
 
   @Override
-  public void flush() {}
+  public void flush() {
+    LockSupport.unpark(m_thread);
+  }
 
   @Override
-  public void close() {}
+  public void close() throws InterruptedException {
+    m_running = false;
+    LockSupport.unpark(m_thread);
+    m_thread.join(1000);
+  }
 }
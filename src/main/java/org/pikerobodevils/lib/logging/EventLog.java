@@ -0,0 +1,240 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.logging;
+
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.util.datalog.RawLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Structured events written to DataLog as fixed-size binary records.
+ *
+ * <p>Each {@link EventType} has its own raw DataLog entry, {@code Events/<name>}, of type {@value
+ * #kEntryType}. A record is little-endian: the type id (u16), the device id (u16), then one int64
+ * per field. The entry metadata holds the type's schema as JSON, and {@link #writeSchema} writes
+ * the schema of every type to a file, so logs can be decoded offline without the robot code.
+ *
+ * <p>Logging an event fills a preallocated buffer and appends it, there is no formatting or string
+ * encoding. Strings such as command names are mapped to ids with {@link #nameId}. Each name is
+ * logged once to {@code Events/Names} as {@code "<id>:<name>"}.
+ */
+public final class EventLog {
+  public static final String kEntryType = "eventlog";
+  public static final String kPrefix = "Events/";
+  public static final String kNamesEntry = kPrefix + "Names";
+
+  private static final int kHeaderBytes = 4;
+
+  private static final List<EventType> s_types = new ArrayList<>();
+  private static final Map<String, Integer> s_nameIds = new HashMap<>();
+  private static StringLogEntry s_namesEntry;
+
+  private EventLog() {}
+
+  /** A kind of event with a fixed set of int64 fields. */
+  public static final class EventType {
+    private final int m_id;
+    private final String m_name;
+    private final boolean m_namedDevice;
+    private final String[] m_fields;
+    private final byte[] m_record;
+    private final ByteBuffer m_buffer;
+    private RawLogEntry m_entry;
+
+    private EventType(int id, String name, boolean namedDevice, String[] fields) {
+      m_id = id;
+      m_name = name;
+      m_namedDevice = namedDevice;
+      m_fields = fields.clone();
+      m_record = new byte[kHeaderBytes + 8 * fields.length];
+      m_buffer = ByteBuffer.wrap(m_record).order(ByteOrder.LITTLE_ENDIAN);
+      m_buffer.putShort(0, (short) id);
+    }
+
+    public String getName() {
+      return m_name;
+    }
+
+    private String schema() {
+      StringBuilder json = new StringBuilder();
+      json.append("{\"id\": ").append(m_id).append(", \"name\": \"").append(m_name);
+      json.append("\", \"device\": \"").append(m_namedDevice ? "name" : "id");
+      json.append("\", \"fields\": [");
+      for (int i = 0; i < m_fields.length; i++) {
+        json.append(i == 0 ? "\"" : ", \"").append(m_fields[i]).append('"');
+      }
+      return json.append("]}").toString();
+    }
+
+    private void start(int deviceId) {
+      if (m_entry == null) {
+        // Created on first use, so registering a type does not start the DataLog
+        m_entry =
+            new RawLogEntry(DataLogManager.getLog(), kPrefix + m_name, schema(), kEntryType);
+      }
+      m_buffer.putShort(2, (short) deviceId);
+    }
+
+    private void finish() {
+      m_entry.append(m_record, WPIUtilJNI.now());
+    }
+  }
+
+  /**
+   * Register an event type. Call once per type, usually from a static initializer.
+   *
+   * @param name name of the type, the DataLog entry is {@code Events/<name>}
+   * @param fields names of the int64 fields of each event, at most 3
+   * @return the event type
+   */
+  public static EventType register(String name, String... fields) {
+    return register(name, false, fields);
+  }
+
+  /**
+   * Register an event type whose device id is a {@link #nameId}, e.g. for command events.
+   *
+   * @param name name of the type, the DataLog entry is {@code Events/<name>}
+   * @param fields names of the int64 fields of each event, at most 3
+   * @return the event type
+   */
+  public static EventType registerNamed(String name, String... fields) {
+    return register(name, true, fields);
+  }
+
+  private static synchronized EventType register(
+      String name, boolean namedDevice, String[] fields) {
+    if (fields.length > 3) {
+      throw new IllegalArgumentException("Events have at most 3 fields");
+    }
+    for (EventType type : s_types) {
+      if (type.m_name.equals(name)) {
+        throw new IllegalArgumentException("Event type " + name + " is already registered");
+      }
+    }
+    EventType type = new EventType(s_types.size() + 1, name, namedDevice, fields);
+    s_types.add(type);
+    return type;
+  }
+
+  /**
+   * Log an event with no fields.
+   *
+   * @param type event type
+   * @param deviceId device the event is about, e.g. a CAN ID, or a {@link #nameId}
+   */
+  public static void log(EventType type, int deviceId) {
+    synchronized (type) {
+      type.start(deviceId);
+      type.finish();
+    }
+  }
+
+  /**
+   * Log an event with one field.
+   *
+   * @param type event type
+   * @param deviceId device the event is about
+   * @param a first field
+   */
+  public static void log(EventType type, int deviceId, long a) {
+    synchronized (type) {
+      type.start(deviceId);
+      type.m_buffer.putLong(kHeaderBytes, a);
+      type.finish();
+    }
+  }
+
+  /**
+   * Log an event with two fields.
+   *
+   * @param type event type
+   * @param deviceId device the event is about
+   * @param a first field
+   * @param b second field
+   */
+  public static void log(EventType type, int deviceId, long a, long b) {
+    synchronized (type) {
+      type.start(deviceId);
+      type.m_buffer.putLong(kHeaderBytes, a);
+      type.m_buffer.putLong(kHeaderBytes + 8, b);
+      type.finish();
+    }
+  }
+
+  /**
+   * Log an event with three fields.
+   *
+   * @param type event type
+   * @param deviceId device the event is about
+   * @param a first field
+   * @param b second field
+   * @param c third field
+   */
+  public static void log(EventType type, int deviceId, long a, long b, long c) {
+    synchronized (type) {
+      type.start(deviceId);
+      type.m_buffer.putLong(kHeaderBytes, a);
+      type.m_buffer.putLong(kHeaderBytes + 8, b);
+      type.m_buffer.putLong(kHeaderBytes + 16, c);
+      type.finish();
+    }
+  }
+
+  /**
+   * Returns the id of a name, logging the name the first time it is seen.
+   *
+   * @param name name, e.g. of a command
+   * @return id of the name, starting at 1
+   */
+  public static synchronized int nameId(String name) {
+    Integer id = s_nameIds.get(name);
+    if (id == null) {
+      id = s_nameIds.size() + 1;
+      s_nameIds.put(name, id);
+      if (s_namesEntry == null) {
+        s_namesEntry = new StringLogEntry(DataLogManager.getLog(), kNamesEntry);
+      }
+      s_namesEntry.append(id + ":" + name);
+    }
+    return id;
+  }
+
+  /**
+   * Returns the schema of every registered type as a JSON array.
+   *
+   * @return schema JSON
+   */
+  public static synchronized String getSchema() {
+    StringBuilder json = new StringBuilder("[\n");
+    for (int i = 0; i < s_types.size(); i++) {
+      json.append("  ").append(s_types.get(i).schema());
+      json.append(i + 1 < s_types.size() ? ",\n" : "\n");
+    }
+    return json.append("]\n").toString();
+  }
+
+  /**
+   * Write the schema of every registered type to a file.
+   *
+   * @param file file to write
+   * @throws IOException if the file can't be written
+   */
+  public static void writeSchema(Path file) throws IOException {
+    Files.write(file, getSchema().getBytes(StandardCharsets.UTF_8));
+  }
+}
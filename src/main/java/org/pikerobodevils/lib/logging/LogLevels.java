@@ -0,0 +1,220 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.logging;
+
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Preferences;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.tinylog.Level;
+import org.tinylog.Logger;
+import org.tinylog.TaggedLogger;
+
+/**
+ * Per-tag log levels that can be changed while the robot is running.
+ *
+ * <p>Each {@link Tag} has a level stored in a {@link Preferences} string, {@code "Log Level
+ * <tag>"}, e.g. "debug" or "off". Edits from the dashboard are applied by a NetworkTables listener,
+ * so checking a level with {@link Tag#isEnabled} is a single volatile read and costs nothing per
+ * loop. Guard log calls with it so a disabled tag is rejected before any arguments are boxed or
+ * formatted. Tag levels filter on top of the tinylog writer levels, they can't enable entries a
+ * writer would drop.
+ *
+ * <p>While the robot is attached to the FMS, "match mode" raises tags created with {@link
+ * #tag(String, Level, Level)} to their match level, e.g. to drop trace logging during matches.
+ * {@link #periodic()} must be called every loop for match mode to follow the FMS state.
+ */
+public final class LogLevels {
+  public static final String kPreferencePrefix = "Log Level ";
+
+  private static final Map<String, Tag> s_tags = new ConcurrentHashMap<>();
+  private static volatile boolean s_matchMode = false;
+  private static boolean s_listening = false;
+
+  private LogLevels() {}
+
+  /** A log tag whose level can be changed at runtime. */
+  public static final class Tag {
+    private final String m_name;
+    private final TaggedLogger m_logger;
+    private final Level m_matchLevel;
+    private Level m_configuredLevel;
+    // Lowest enabled level ordinal, the only field read when logging
+    private volatile int m_minOrdinal;
+
+    private Tag(String name, Level defaultLevel, Level matchLevel) {
+      m_name = name;
+      m_logger = Logger.tag(name);
+      m_matchLevel = matchLevel;
+      m_configuredLevel = defaultLevel;
+      update();
+    }
+
+    private synchronized void setConfiguredLevel(Level level) {
+      m_configuredLevel = level;
+      update();
+    }
+
+    // Synchronized so a Preferences edit and a match mode change can't race
+    private synchronized void update() {
+      Level level = m_configuredLevel;
+      if (s_matchMode && m_matchLevel.ordinal() > level.ordinal()) {
+        level = m_matchLevel;
+      }
+      m_minOrdinal = level.ordinal();
+    }
+
+    public String getName() {
+      return m_name;
+    }
+
+    /**
+     * Returns the level in effect, including match mode.
+     *
+     * @return the level
+     */
+    public Level getLevel() {
+      return Level.values()[m_minOrdinal];
+    }
+
+    /**
+     * Returns whether entries at a level are logged. Check this before building expensive
+     * arguments.
+     *
+     * @param level level of the entry
+     * @return true if enabled
+     */
+    public boolean isEnabled(Level level) {
+      return level.ordinal() >= m_minOrdinal;
+    }
+
+    /**
+     * Returns the tinylog logger for the tag. Entries logged through it directly skip the tag
+     * level.
+     *
+     * @return the logger
+     */
+    public TaggedLogger logger() {
+      return m_logger;
+    }
+
+    // The methods below check the level too, but their arguments have already been built by the
+    // time they run. Guard calls with isEnabled() unless the arguments are constants.
+
+    public void trace(String message, Object... arguments) {
+      if (Level.TRACE.ordinal() >= m_minOrdinal) {
+        m_logger.trace(message, arguments);
+      }
+    }
+
+    public void debug(String message, Object... arguments) {
+      if (Level.DEBUG.ordinal() >= m_minOrdinal) {
+        m_logger.debug(message, arguments);
+      }
+    }
+
+    public void info(String message, Object... arguments) {
+      if (Level.INFO.ordinal() >= m_minOrdinal) {
+        m_logger.info(message, arguments);
+      }
+    }
+
+    public void warn(String message, Object... arguments) {
+      if (Level.WARN.ordinal() >= m_minOrdinal) {
+        m_logger.warn(message, arguments);
+      }
+    }
+
+    public void error(String message, Object... arguments) {
+      if (Level.ERROR.ordinal() >= m_minOrdinal) {
+        m_logger.error(message, arguments);
+      }
+    }
+  }
+
+  /**
+   * Returns the tag with a name, creating it at the trace level if needed.
+   *
+   * @param name tag name, as passed to {@link Logger#tag}
+   * @return the tag
+   */
+  public static Tag tag(String name) {
+    return tag(name, Level.TRACE, Level.TRACE);
+  }
+
+  /**
+   * Returns the tag with a name, creating it if needed. The levels are ignored if the tag exists.
+   *
+   * @param name tag name, as passed to {@link Logger#tag}
+   * @param defaultLevel level until changed from Preferences
+   * @param matchLevel minimum level while attached to the FMS
+   * @return the tag
+   */
+  public static Tag tag(String name, Level defaultLevel, Level matchLevel) {
+    return s_tags.computeIfAbsent(name, key -> new Tag(key, defaultLevel, matchLevel));
+  }
+
+  /**
+   * Load the tag levels from Preferences and start listening for changes. Call once after the
+   * tags have been created, new tags created later are picked up by the listener when their
+   * preference is set.
+   */
+  public static synchronized void start() {
+    if (s_listening) {
+      return;
+    }
+    s_listening = true;
+    for (Tag tag : s_tags.values()) {
+      String level;
+      synchronized (tag) {
+        level = tag.m_configuredLevel.name().toLowerCase(Locale.ROOT);
+      }
+      Preferences.initString(kPreferencePrefix + tag.m_name, level);
+    }
+    NetworkTableInstance.getDefault()
+        .addListener(
+            new String[] {"/Preferences/" + kPreferencePrefix},
+            EnumSet.of(NetworkTableEvent.Kind.kValueAll, NetworkTableEvent.Kind.kImmediate),
+            LogLevels::onPreferenceChanged);
+  }
+
+  private static void onPreferenceChanged(NetworkTableEvent event) {
+    if (event.valueData == null || !event.valueData.value.isString()) {
+      return;
+    }
+    String key = event.valueData.getTopic().getName();
+    int start = key.indexOf(kPreferencePrefix) + kPreferencePrefix.length();
+    Tag tag = s_tags.get(key.substring(start));
+    if (tag == null) {
+      return;
+    }
+    String value = event.valueData.value.getString().trim().toUpperCase(Locale.ROOT);
+    try {
+      tag.setConfiguredLevel(Level.valueOf(value));
+    } catch (IllegalArgumentException e) {
+      Logger.tag("LogLevels").warn("Invalid log level \"{}\" for tag {}", value, tag.m_name);
+    }
+  }
+
+  /** Enter or leave match mode with the FMS state. */
+  public static void periodic() {
+    boolean matchMode = DriverStation.isFMSAttached();
+    if (matchMode != s_matchMode) {
+      s_matchMode = matchMode;
+      for (Tag tag : s_tags.values()) {
+        tag.update();
+      }
+    }
+  }
+
+  public static boolean isMatchMode() {
+    return s_matchMode;
+  }
+}
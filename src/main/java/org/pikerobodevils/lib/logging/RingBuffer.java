@@ -0,0 +1,134 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer queue of timestamped elements. All slots are
+ * allocated up front, so offering and polling never allocate.
+ *
+ * <p>Based on Dmitry Vyukov's bounded MPMC queue: each slot carries a sequence number which tells
+ * producers and consumers whether the slot is free to write or ready to read.
+ *
+ * @param <E> element type
+ */
+public class RingBuffer<E> {
+
+  /** Receives an element and its timestamp as it is removed from the buffer. */
+  public interface Sink<E> {
+    void accept(E element, long timestamp);
+  }
+
+  private final int m_mask;
+  private final AtomicLongArray m_sequences;
+  private final Object[] m_elements;
+  private final long[] m_timestamps;
+
+  private final AtomicLong m_head = new AtomicLong();
+  private final AtomicLong m_tail = new AtomicLong();
+
+  /**
+   * Create a ring buffer.
+   *
+   * @param capacity minimum capacity, rounded up to the next power of two
+   */
+  public RingBuffer(int capacity) {
+    if (capacity < 1 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    m_mask = size - 1;
+    m_sequences = new AtomicLongArray(size);
+    m_elements = new Object[size];
+    m_timestamps = new long[size];
+    for (int i = 0; i < size; i++) {
+      m_sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Add an element if there is room.
+   *
+   * @param element element to add
+   * @param timestamp timestamp stored alongside the element
+   * @return false if the buffer is full
+   */
+  public boolean offer(E element, long timestamp) {
+    long pos = m_tail.get();
+    while (true) {
+      int index = (int) (pos & m_mask);
+      long diff = m_sequences.get(index) - pos;
+      if (diff == 0) {
+        if (m_tail.compareAndSet(pos, pos + 1)) {
+          m_elements[index] = element;
+          m_timestamps[index] = timestamp;
+          // Publishes the element to consumers
+          m_sequences.set(index, pos + 1);
+          return true;
+        }
+        pos = m_tail.get();
+      } else if (diff < 0) {
+        return false;
+      } else {
+        pos = m_tail.get();
+      }
+    }
+  }
+
+  /**
+   * Remove the oldest element and pass it to the sink.
+   *
+   * @param sink receives the element, after its slot has been released
+   * @return false if the buffer is empty
+   */
+  @SuppressWarnings("unchecked")
+  public boolean poll(Sink<E> sink) {
+    long pos = m_head.get();
+    while (true) {
+      int index = (int) (pos & m_mask);
+      long diff = m_sequences.get(index) - (pos + 1);
+      if (diff == 0) {
+        if (m_head.compareAndSet(pos, pos + 1)) {
+          E element = (E) m_elements[index];
+          long timestamp = m_timestamps[index];
+          m_elements[index] = null;
+          // Hands the slot back to producers
+          m_sequences.set(index, pos + m_mask + 1);
+          sink.accept(element, timestamp);
+          return true;
+        }
+        pos = m_head.get();
+      } else if (diff < 0) {
+        return false;
+      } else {
+        pos = m_head.get();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of elements in the buffer. Only a snapshot when other threads are active.
+   *
+   * @return number of elements
+   */
+  public int size() {
+    long size = m_tail.get() - m_head.get();
+    return (int) Math.max(0, Math.min(size, m_mask + 1));
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public int capacity() {
+    return m_mask + 1;
+  }
+}
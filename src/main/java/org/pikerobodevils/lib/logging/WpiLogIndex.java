@@ -0,0 +1,284 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.logging;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Index of the numeric entries in a .wpilog file, for looking up the value of an entry at a given
+ * time.
+ *
+ * <p>The file is memory-mapped by {@link DataLogReader} and read once. Every boolean, integer,
+ * float and double entry, and arrays of those, is decoded into primitive arrays sorted by
+ * timestamp. Booleans are stored as 0 and 1. String and raw entries are skipped.
+ */
+public class WpiLogIndex {
+  private final Map<String, Series> m_series;
+
+  private WpiLogIndex(Map<String, Series> series) {
+    m_series = series;
+  }
+
+  /** The values of one entry over time. */
+  public static class Series {
+    private final String m_name;
+    private final String m_type;
+    private long[] m_timestamps = new long[16];
+    private double[] m_values;
+    private double[][] m_arrays;
+    private int m_size;
+
+    private Series(String name, String type) {
+      m_name = name;
+      m_type = type;
+      if (isArray()) {
+        m_arrays = new double[16][];
+      } else {
+        m_values = new double[16];
+      }
+    }
+
+    public String getName() {
+      return m_name;
+    }
+
+    public String getType() {
+      return m_type;
+    }
+
+    public boolean isArray() {
+      return m_type.endsWith("[]");
+    }
+
+    public int size() {
+      return m_size;
+    }
+
+    public long getTimestamp(int index) {
+      return m_timestamps[index];
+    }
+
+    public double getValue(int index) {
+      return m_values[index];
+    }
+
+    public double[] getArray(int index) {
+      return m_arrays[index];
+    }
+
+    /**
+     * Returns the index of the last value logged at or before a time.
+     *
+     * @param timestamp time in microseconds
+     * @return index of the value, or -1 if nothing was logged by then
+     */
+    public int indexAt(long timestamp) {
+      int index = Arrays.binarySearch(m_timestamps, 0, m_size, timestamp);
+      if (index < 0) {
+        return -index - 2;
+      }
+      // Several values can share a timestamp, the last one wins
+      while (index + 1 < m_size && m_timestamps[index + 1] == timestamp) {
+        index++;
+      }
+      return index;
+    }
+
+    /**
+     * Returns the value logged at or before a time.
+     *
+     * @param timestamp time in microseconds
+     * @param defaultValue value if nothing was logged by then
+     * @return the value
+     */
+    public double valueAt(long timestamp, double defaultValue) {
+      int index = indexAt(timestamp);
+      return index < 0 ? defaultValue : m_values[index];
+    }
+
+    /**
+     * Returns the array logged at or before a time.
+     *
+     * @param timestamp time in microseconds
+     * @return the array, or null if nothing was logged by then
+     */
+    public double[] arrayAt(long timestamp) {
+      int index = indexAt(timestamp);
+      return index < 0 ? null : m_arrays[index];
+    }
+
+    private void add(DataLogRecord record) {
+      if (m_size == m_timestamps.length) {
+        m_timestamps = Arrays.copyOf(m_timestamps, m_size * 2);
+        if (m_values != null) {
+          m_values = Arrays.copyOf(m_values, m_size * 2);
+        } else {
+          m_arrays = Arrays.copyOf(m_arrays, m_size * 2);
+        }
+      }
+      m_timestamps[m_size] = record.getTimestamp();
+      if (m_values != null) {
+        m_values[m_size] = decode(record);
+      } else {
+        m_arrays[m_size] = decodeArray(record);
+      }
+      m_size++;
+    }
+
+    private double decode(DataLogRecord record) {
+      switch (m_type) {
+        case "boolean":
+          return record.getBoolean() ? 1 : 0;
+        case "int64":
+          return record.getInteger();
+        case "float":
+          return record.getFloat();
+        default:
+          return record.getDouble();
+      }
+    }
+
+    private double[] decodeArray(DataLogRecord record) {
+      switch (m_type) {
+        case "boolean[]":
+          boolean[] booleans = record.getBooleanArray();
+          double[] values = new double[booleans.length];
+          for (int i = 0; i < booleans.length; i++) {
+            values[i] = booleans[i] ? 1 : 0;
+          }
+          return values;
+        case "int64[]":
+          return Arrays.stream(record.getIntegerArray()).asDoubleStream().toArray();
+        case "float[]":
+          float[] floats = record.getFloatArray();
+          double[] doubles = new double[floats.length];
+          for (int i = 0; i < floats.length; i++) {
+            doubles[i] = floats[i];
+          }
+          return doubles;
+        default:
+          return record.getDoubleArray();
+      }
+    }
+
+    private void sort() {
+      // Records are usually in order already, but the log doesn't guarantee it
+      for (int i = 1; i < m_size; i++) {
+        if (m_timestamps[i] < m_timestamps[i - 1]) {
+          sortByTimestamp();
+          return;
+        }
+      }
+    }
+
+    private void sortByTimestamp() {
+      Integer[] order = new Integer[m_size];
+      for (int i = 0; i < m_size; i++) {
+        order[i] = i;
+      }
+      // Stable, so values logged at the same time keep their order
+      Arrays.sort(order, (a, b) -> Long.compare(m_timestamps[a], m_timestamps[b]));
+      long[] timestamps = new long[m_size];
+      double[] values = m_values != null ? new double[m_size] : null;
+      double[][] arrays = m_arrays != null ? new double[m_size][] : null;
+      for (int i = 0; i < m_size; i++) {
+        timestamps[i] = m_timestamps[order[i]];
+        if (values != null) {
+          values[i] = m_values[order[i]];
+        } else {
+          arrays[i] = m_arrays[order[i]];
+        }
+      }
+      m_timestamps = timestamps;
+      m_values = values;
+      m_arrays = arrays;
+    }
+  }
+
+  /**
+   * Read and index a log file.
+   *
+   * @param filename path to the .wpilog file
+   * @return the index
+   * @throws IOException if the file can't be read or is not a wpilog
+   */
+  public static WpiLogIndex load(String filename) throws IOException {
+    return load(filename, name -> true);
+  }
+
+  /**
+   * Read and index some of the entries in a log file.
+   *
+   * @param filename path to the .wpilog file
+   * @param filter returns true for the names of entries to index
+   * @return the index
+   * @throws IOException if the file can't be read or is not a wpilog
+   */
+  public static WpiLogIndex load(String filename, Predicate<String> filter) throws IOException {
+    DataLogReader reader = new DataLogReader(filename);
+    if (!reader.isValid()) {
+      throw new IOException(filename + " is not a wpilog file");
+    }
+
+    Map<Integer, Series> byEntry = new HashMap<>();
+    Map<String, Series> byName = new HashMap<>();
+    for (DataLogRecord record : reader) {
+      if (record.isStart()) {
+        DataLogRecord.StartRecordData start = record.getStartData();
+        if (!isNumeric(start.type) || !filter.test(start.name)) {
+          continue;
+        }
+        // An entry can be finished and started again, keep appending to the same series
+        Series series =
+            byName.computeIfAbsent(start.name, name -> new Series(name, start.type));
+        if (series.getType().equals(start.type)) {
+          byEntry.put(start.entry, series);
+        }
+      } else if (record.isFinish()) {
+        byEntry.remove(record.getFinishEntry());
+      } else if (!record.isControl()) {
+        Series series = byEntry.get(record.getEntry());
+        if (series != null) {
+          series.add(record);
+        }
+      }
+    }
+    for (Series series : byName.values()) {
+      series.sort();
+    }
+    return new WpiLogIndex(byName);
+  }
+
+  private static boolean isNumeric(String type) {
+    String scalar = type.endsWith("[]") ? type.substring(0, type.length() - 2) : type;
+    return scalar.equals("boolean")
+        || scalar.equals("int64")
+        || scalar.equals("float")
+        || scalar.equals("double");
+  }
+
+  /**
+   * Returns the series for an entry.
+   *
+   * @param name entry name
+   * @return the series, or null if the entry is not in the log or is not numeric
+   */
+  public Series get(String name) {
+    return m_series.get(name);
+  }
+
+  public Set<String> getNames() {
+    return Collections.unmodifiableSet(m_series.keySet());
+  }
+}
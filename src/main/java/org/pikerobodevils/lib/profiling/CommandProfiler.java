@@ -0,0 +1,319 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.profiling;
+
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.pikerobodevils.lib.logging.EventLog;
+import org.pikerobodevils.lib.logging.LogLevels;
+import org.tinylog.Level;
+
+/**
+ * Profiles the lifecycle of every scheduled command: when it started and ended, how much time its
+ * execute() took, and why it was interrupted.
+ *
+ * <p>execute() times are captured from the scheduler callbacks in the same way as {@link
+ * LoopProfiler}, and are recorded in a {@code <name>.execute()} loop profiler section. Calls that
+ * take longer than the budget are counted and logged as {@code Command/OverBudget} events.
+ *
+ * <p>Each run of a command is logged as a {@code Command/End} event when it ends, with its run time
+ * in microseconds, total execute() time in nanoseconds, and the cause: {@link #kFinished}, {@link
+ * #kCanceled}, {@link #kDisabled}, or the {@link EventLog#nameId} of the command that interrupted
+ * it by requiring the same subsystem. {@code Command/Start} events are trace level on the
+ * "Scheduler" tag, so match mode drops them, the start time of a run is also its end time minus its
+ * run time.
+ *
+ * <p>Statistics are aggregated per command name in arrays that only grow when a new command is
+ * first seen. {@link #logSummary()} writes them to the log. Running commands are tracked in slots
+ * that are freed when they end and reused, so commands created on the fly are not kept alive.
+ *
+ * <p>Not thread safe, everything here is expected to run on the main robot thread.
+ */
+public class CommandProfiler {
+  public static final int kFinished = 0;
+  public static final int kCanceled = -1;
+  public static final int kDisabled = -2;
+
+  private static final long kDefaultBudgetNanos = 1_000_000;
+
+  private static final LogLevels.Tag s_log = LogLevels.tag("Scheduler", Level.TRACE, Level.DEBUG);
+
+  private static final EventLog.EventType s_startEvent = EventLog.registerNamed("Command/Start");
+  private static final EventLog.EventType s_endEvent =
+      EventLog.registerNamed("Command/End", "runMicros", "executeNanos", "cause");
+  private static final EventLog.EventType s_overBudgetEvent =
+      EventLog.registerNamed("Command/OverBudget", "executeNanos");
+
+  // Per command name
+  private static final Map<String, Integer> s_nameSlots = new HashMap<>();
+  private static int s_nameCount = 0;
+  private static String[] s_names = new String[16];
+  private static int[] s_nameIds = new int[16];
+  private static LoopProfiler.Section[] s_sections = new LoopProfiler.Section[16];
+  private static long[] s_budgetNanos = new long[16];
+  private static int[] s_runs = new int[16];
+  private static int[] s_interrupts = new int[16];
+  private static long[] s_totalRunMicros = new long[16];
+  private static long[] s_maxRunMicros = new long[16];
+  private static long[] s_executeCount = new long[16];
+  private static long[] s_totalExecuteNanos = new long[16];
+  private static long[] s_maxExecuteNanos = new long[16];
+  private static int[] s_overBudget = new int[16];
+
+  // Per running command instance, several instances can share a name
+  private static final Map<Command, Integer> s_instanceSlots = new IdentityHashMap<>();
+  private static int s_instanceCount = 0;
+  private static int[] s_freeSlots = new int[16];
+  private static int s_freeCount = 0;
+  private static int[] s_instanceNames = new int[16];
+  private static long[] s_startMicros = new long[16];
+  private static long[] s_executeNanos = new long[16];
+  private static Command[] s_instances = new Command[16];
+
+  // Interrupted instances whose cause is known only once the next command is initialized
+  private static int[] s_pending = new int[8];
+  private static long[] s_pendingEndMicros = new long[8];
+  private static int s_pendingCount = 0;
+
+  private static final Map<String, Long> s_budgetOverrides = new HashMap<>();
+  private static long s_defaultBudgetNanos = kDefaultBudgetNanos;
+
+  private static boolean s_started = false;
+  private static long s_markNanos = 0;
+
+  private CommandProfiler() {}
+
+  /**
+   * Set the execute() budget of every command without its own budget.
+   *
+   * @param seconds budget in seconds
+   */
+  public static void setDefaultBudget(double seconds) {
+    s_defaultBudgetNanos = (long) (seconds * 1e9);
+    for (int i = 0; i < s_nameCount; i++) {
+      s_budgetNanos[i] = s_budgetOverrides.getOrDefault(s_names[i], s_defaultBudgetNanos);
+    }
+  }
+
+  /**
+   * Set the execute() budget of the commands with a name.
+   *
+   * @param name command name
+   * @param seconds budget in seconds
+   */
+  public static void setBudget(String name, double seconds) {
+    long nanos = (long) (seconds * 1e9);
+    s_budgetOverrides.put(name, nanos);
+    Integer slot = s_nameSlots.get(name);
+    if (slot != null) {
+      s_budgetNanos[slot] = nanos;
+    }
+  }
+
+  /**
+   * Hook into the command scheduler. Call once at the end of robotInit, after all button bindings
+   * have been made so that the command phase mark runs after them.
+   */
+  public static void start() {
+    if (s_started) {
+      return;
+    }
+    s_started = true;
+
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+    scheduler.getDefaultButtonLoop().bind(CommandProfiler::markCommandPhase);
+    scheduler.onCommandInitialize(CommandProfiler::onInitialize);
+    scheduler.onCommandExecute(CommandProfiler::onExecute);
+    scheduler.onCommandFinish(CommandProfiler::onFinish);
+    scheduler.onCommandInterrupt(CommandProfiler::onInterrupt);
+  }
+
+  private static void markCommandPhase() {
+    flushPending(null);
+    s_markNanos = System.nanoTime();
+  }
+
+  private static void onInitialize(Command command) {
+    flushPending(command);
+    int slot = instanceSlot(command);
+    s_startMicros[slot] = WPIUtilJNI.now();
+    s_executeNanos[slot] = 0;
+    if (s_log.isEnabled(Level.TRACE)) {
+      EventLog.log(s_startEvent, s_nameIds[s_instanceNames[slot]]);
+    }
+  }
+
+  private static void onExecute(Command command) {
+    long now = System.nanoTime();
+    long nanos = now - s_markNanos;
+    s_markNanos = now;
+    flushPending(null);
+
+    int slot = instanceSlot(command);
+    int name = s_instanceNames[slot];
+    s_executeNanos[slot] += nanos;
+    s_sections[name].record(nanos);
+    s_executeCount[name]++;
+    s_totalExecuteNanos[name] += nanos;
+    s_maxExecuteNanos[name] = Math.max(s_maxExecuteNanos[name], nanos);
+    if (nanos > s_budgetNanos[name]) {
+      EventLog.log(s_overBudgetEvent, s_nameIds[name], nanos);
+      if (s_overBudget[name]++ == 0 && s_log.isEnabled(Level.WARN)) {
+        s_log.warn(
+            "{}.execute() took {} ms, over its budget of {} ms",
+            s_names[name],
+            String.format("%.3f", nanos / 1e6),
+            String.format("%.3f", s_budgetNanos[name] / 1e6));
+      }
+    }
+  }
+
+  private static void onFinish(Command command) {
+    s_markNanos = System.nanoTime();
+    flushPending(null);
+    end(instanceSlot(command), WPIUtilJNI.now(), kFinished);
+  }
+
+  private static void onInterrupt(Command command) {
+    s_markNanos = System.nanoTime();
+    int slot = instanceSlot(command);
+    long now = WPIUtilJNI.now();
+    if (DriverStation.isDisabled() && !command.runsWhenDisabled()) {
+      end(slot, now, kDisabled);
+      return;
+    }
+    if (s_pendingCount == s_pending.length) {
+      s_pending = Arrays.copyOf(s_pending, s_pendingCount * 2);
+      s_pendingEndMicros = Arrays.copyOf(s_pendingEndMicros, s_pendingCount * 2);
+    }
+    s_pending[s_pendingCount] = slot;
+    s_pendingEndMicros[s_pendingCount] = now;
+    s_pendingCount++;
+  }
+
+  /**
+   * End the pending interrupted commands.
+   *
+   * @param initialized command being initialized, pending commands sharing a requirement with it
+   *     were interrupted by it, or null
+   */
+  private static void flushPending(Command initialized) {
+    for (int i = 0; i < s_pendingCount; i++) {
+      int slot = s_pending[i];
+      int cause = kCanceled;
+      if (initialized != null
+          && !Collections.disjoint(
+              s_instances[slot].getRequirements(), initialized.getRequirements())) {
+        cause = s_nameIds[nameSlot(initialized.getName())];
+      }
+      end(slot, s_pendingEndMicros[i], cause);
+    }
+    s_pendingCount = 0;
+  }
+
+  private static void end(int slot, long endMicros, int cause) {
+    int name = s_instanceNames[slot];
+    long runMicros = endMicros - s_startMicros[slot];
+    s_runs[name]++;
+    if (cause != kFinished) {
+      s_interrupts[name]++;
+    }
+    s_totalRunMicros[name] += runMicros;
+    s_maxRunMicros[name] = Math.max(s_maxRunMicros[name], runMicros);
+    EventLog.log(s_endEvent, s_nameIds[name], runMicros, s_executeNanos[slot], cause);
+
+    s_instanceSlots.remove(s_instances[slot]);
+    s_instances[slot] = null;
+    if (s_freeCount == s_freeSlots.length) {
+      s_freeSlots = Arrays.copyOf(s_freeSlots, s_freeCount * 2);
+    }
+    s_freeSlots[s_freeCount++] = slot;
+  }
+
+  private static int instanceSlot(Command command) {
+    Integer slot = s_instanceSlots.get(command);
+    if (slot != null) {
+      return slot;
+    }
+    int free;
+    if (s_freeCount > 0) {
+      free = s_freeSlots[--s_freeCount];
+    } else {
+      if (s_instanceCount == s_instances.length) {
+        int capacity = s_instanceCount * 2;
+        s_instances = Arrays.copyOf(s_instances, capacity);
+        s_instanceNames = Arrays.copyOf(s_instanceNames, capacity);
+        s_startMicros = Arrays.copyOf(s_startMicros, capacity);
+        s_executeNanos = Arrays.copyOf(s_executeNanos, capacity);
+      }
+      free = s_instanceCount++;
+    }
+    s_instances[free] = command;
+    s_instanceNames[free] = nameSlot(command.getName());
+    s_instanceSlots.put(command, free);
+    return free;
+  }
+
+  private static int nameSlot(String name) {
+    Integer slot = s_nameSlots.get(name);
+    if (slot != null) {
+      return slot;
+    }
+    if (s_nameCount == s_names.length) {
+      int capacity = s_nameCount * 2;
+      s_names = Arrays.copyOf(s_names, capacity);
+      s_nameIds = Arrays.copyOf(s_nameIds, capacity);
+      s_sections = Arrays.copyOf(s_sections, capacity);
+      s_budgetNanos = Arrays.copyOf(s_budgetNanos, capacity);
+      s_runs = Arrays.copyOf(s_runs, capacity);
+      s_interrupts = Arrays.copyOf(s_interrupts, capacity);
+      s_totalRunMicros = Arrays.copyOf(s_totalRunMicros, capacity);
+      s_maxRunMicros = Arrays.copyOf(s_maxRunMicros, capacity);
+      s_executeCount = Arrays.copyOf(s_executeCount, capacity);
+      s_totalExecuteNanos = Arrays.copyOf(s_totalExecuteNanos, capacity);
+      s_maxExecuteNanos = Arrays.copyOf(s_maxExecuteNanos, capacity);
+      s_overBudget = Arrays.copyOf(s_overBudget, capacity);
+    }
+    s_names[s_nameCount] = name;
+    s_nameIds[s_nameCount] = EventLog.nameId(name);
+    s_sections[s_nameCount] = LoopProfiler.section(name + ".execute()");
+    s_budgetNanos[s_nameCount] = s_budgetOverrides.getOrDefault(name, s_defaultBudgetNanos);
+    s_nameSlots.put(name, s_nameCount);
+    return s_nameCount++;
+  }
+
+  /** Log the statistics of every command that has run, e.g. at the end of a match. */
+  public static void logSummary() {
+    if (!s_log.isEnabled(Level.INFO)) {
+      return;
+    }
+    for (int i = 0; i < s_nameCount; i++) {
+      if (s_runs[i] == 0 && s_executeCount[i] == 0) {
+        continue;
+      }
+      s_log.info(
+          "{}: {} runs, {} interrupted, run mean {} ms max {} ms, execute() mean {} ms max {} ms,"
+              + " {} over budget",
+          s_names[i],
+          s_runs[i],
+          s_interrupts[i],
+          String.format("%.1f", s_runs[i] == 0 ? 0 : s_totalRunMicros[i] / 1e3 / s_runs[i]),
+          String.format("%.1f", s_maxRunMicros[i] / 1e3),
+          String.format(
+              "%.3f",
+              s_executeCount[i] == 0 ? 0 : s_totalExecuteNanos[i] / 1e6 / s_executeCount[i]),
+          String.format("%.3f", s_maxExecuteNanos[i] / 1e6),
+          s_overBudget[i]);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.profiling;
+
+import java.util.Arrays;
+
+/**
+ * Fixed bucket histogram of durations in microseconds. All storage is allocated in the constructor
+ * so recording a sample never allocates. Samples larger than the last bucket are counted in an
+ * overflow bucket, and the exact maximum is always tracked.
+ */
+public class Histogram {
+  private final long[] m_counts;
+  private final long m_bucketWidthMicros;
+
+  private long m_count = 0;
+  private long m_sum = 0;
+  private long m_max = 0;
+
+  /**
+   * Create a histogram.
+   *
+   * @param bucketWidthMicros width of each bucket in microseconds
+   * @param bucketCount number of buckets, not including the overflow bucket
+   */
+  public Histogram(long bucketWidthMicros, int bucketCount) {
+    if (bucketWidthMicros <= 0 || bucketCount <= 0) {
+      throw new IllegalArgumentException("Bucket width and count must be positive");
+    }
+    m_bucketWidthMicros = bucketWidthMicros;
+    m_counts = new long[bucketCount + 1];
+  }
+
+  /**
+   * Record a sample.
+   *
+   * @param micros duration in microseconds
+   */
+  public void record(long micros) {
+    if (micros < 0) {
+      micros = 0;
+    }
+    long bucket = micros / m_bucketWidthMicros;
+    int overflow = m_counts.length - 1;
+    m_counts[bucket >= overflow ? overflow : (int) bucket]++;
+    m_count++;
+    m_sum += micros;
+    if (micros > m_max) {
+      m_max = micros;
+    }
+  }
+
+  /**
+   * Returns an upper bound on the given percentile, accurate to one bucket width.
+   *
+   * @param percentile percentile in the range [0, 1]
+   * @return the percentile in microseconds, or 0 if no samples have been recorded
+   */
+  public long getPercentile(double percentile) {
+    if (m_count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile * m_count));
+    long seen = 0;
+    for (int i = 0; i < m_counts.length - 1; i++) {
+      seen += m_counts[i];
+      if (seen >= rank) {
+        return Math.min((i + 1) * m_bucketWidthMicros, m_max);
+      }
+    }
+    return m_max;
+  }
+
+  public long getMax() {
+    return m_max;
+  }
+
+  public long getCount() {
+    return m_count;
+  }
+
+  public double getMean() {
+    return m_count == 0 ? 0 : (double) m_sum / m_count;
+  }
+
+  /** Clear all recorded samples. */
+  public void reset() {
+    Arrays.fill(m_counts, 0);
+    m_count = 0;
+    m_sum = 0;
+    m_max = 0;
+  }
+}
@@ -0,0 +1,134 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.profiling;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times sections of the robot loop into fixed bucket histograms and publishes a summary of each
+ * section once per second.
+ *
+ * <p>Subsystems and the robot loop time themselves with a {@link Section}. Command execute() times
+ * are recorded by {@link CommandProfiler}.
+ *
+ * <p>Each summary is published to NetworkTables and DataLog under {@code /Profiler/<section>} as
+ * {@code [p50, p99, max, count]}, with times in milliseconds over the last publish period.
+ *
+ * <p>Not thread safe, everything here is expected to run on the main robot thread.
+ */
+public class LoopProfiler {
+  private static final String kPrefix = "/Profiler/";
+  private static final int kPublishPeriodLoops = 50;
+  private static final long kBucketWidthMicros = 50;
+  private static final int kBucketCount = 400;
+
+  private static final List<Section> s_sections = new ArrayList<>();
+
+  private static boolean s_started = false;
+  private static int s_loopCount = 0;
+
+  private LoopProfiler() {}
+
+  /** A timed section of the robot loop. */
+  public static class Section {
+    private final String m_name;
+    private final Histogram m_histogram = new Histogram(kBucketWidthMicros, kBucketCount);
+    private final double[] m_summary = new double[4];
+    private DoubleArrayPublisher m_publisher;
+    private DoubleArrayLogEntry m_logEntry;
+    private long m_startNanos;
+
+    private Section(String name) {
+      m_name = name;
+    }
+
+    /** Mark the start of the section. */
+    public void start() {
+      m_startNanos = System.nanoTime();
+    }
+
+    /** Mark the end of the section and record the time since {@link #start()}. */
+    public void stop() {
+      record(System.nanoTime() - m_startNanos);
+    }
+
+    /**
+     * Record a duration measured elsewhere.
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+      m_histogram.record(nanos / 1000);
+    }
+
+    public String getName() {
+      return m_name;
+    }
+
+    public Histogram getHistogram() {
+      return m_histogram;
+    }
+
+    private void createOutputs() {
+      m_publisher =
+          NetworkTableInstance.getDefault().getDoubleArrayTopic(kPrefix + m_name).publish();
+      m_logEntry = new DoubleArrayLogEntry(DataLogManager.getLog(), kPrefix + m_name);
+    }
+
+    private void publish() {
+      m_summary[0] = m_histogram.getPercentile(0.5) / 1000.0;
+      m_summary[1] = m_histogram.getPercentile(0.99) / 1000.0;
+      m_summary[2] = m_histogram.getMax() / 1000.0;
+      m_summary[3] = m_histogram.getCount();
+      m_publisher.set(m_summary);
+      m_logEntry.append(m_summary);
+      m_histogram.reset();
+    }
+  }
+
+  /**
+   * Create a new section. Sections should be created once, typically as a field, and reused every
+   * loop.
+   *
+   * @param name name the section is published under
+   * @return the section
+   */
+  public static Section section(String name) {
+    Section section = new Section(name);
+    s_sections.add(section);
+    if (s_started) {
+      section.createOutputs();
+    }
+    return section;
+  }
+
+  /** Start publishing. Call once at the end of robotInit. */
+  public static void start() {
+    if (s_started) {
+      return;
+    }
+    s_started = true;
+    for (Section section : s_sections) {
+      section.createOutputs();
+    }
+  }
+
+  /** Publish summaries once per second. Call at the end of robotPeriodic. */
+  public static void periodic() {
+    if (!s_started || ++s_loopCount < kPublishPeriodLoops) {
+      return;
+    }
+    s_loopCount = 0;
+    for (int i = 0; i < s_sections.size(); i++) {
+      s_sections.get(i).publish();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.profiling;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+
+/**
+ * Times a periodic task that runs off the main robot thread, such as a Notifier callback.
+ *
+ * <p>Two histograms are kept: start jitter, the distance of each start from the nominal period,
+ * and execution time. They are published about once per second under {@code
+ * /Profiler/<name>/Jitter} and {@code /Profiler/<name>/Execution}, in the same {@code [p50, p99,
+ * max, count]} millisecond format as {@link LoopProfiler}.
+ *
+ * <p>Not thread safe. An instance belongs to the task's thread, and publishing happens there.
+ */
+public class PeriodicTimer {
+  private static final String kPrefix = "/Profiler/";
+  private static final long kBucketWidthMicros = 10;
+  private static final int kBucketCount = 1000;
+
+  private final long m_periodNanos;
+  private final int m_publishPeriodRuns;
+
+  private final Histogram m_jitter = new Histogram(kBucketWidthMicros, kBucketCount);
+  private final Histogram m_execution = new Histogram(kBucketWidthMicros, kBucketCount);
+  private final double[] m_summary = new double[4];
+
+  private final DoubleArrayPublisher m_jitterPublisher;
+  private final DoubleArrayPublisher m_executionPublisher;
+  private final DoubleArrayLogEntry m_jitterLog;
+  private final DoubleArrayLogEntry m_executionLog;
+
+  private long m_lastStartNanos = 0;
+  private long m_startNanos;
+  private int m_runs = 0;
+
+  /**
+   * Create a timer.
+   *
+   * @param name name the statistics are published under
+   * @param periodSeconds nominal period of the task
+   */
+  public PeriodicTimer(String name, double periodSeconds) {
+    m_periodNanos = (long) (periodSeconds * 1e9);
+    m_publishPeriodRuns = (int) Math.max(1, Math.round(1.0 / periodSeconds));
+
+    var nt = NetworkTableInstance.getDefault();
+    m_jitterPublisher = nt.getDoubleArrayTopic(kPrefix + name + "/Jitter").publish();
+    m_executionPublisher = nt.getDoubleArrayTopic(kPrefix + name + "/Execution").publish();
+    m_jitterLog = new DoubleArrayLogEntry(DataLogManager.getLog(), kPrefix + name + "/Jitter");
+    m_executionLog =
+        new DoubleArrayLogEntry(DataLogManager.getLog(), kPrefix + name + "/Execution");
+  }
+
+  /** Mark the start of a run. Call first thing in the task. */
+  public void start() {
+    m_startNanos = System.nanoTime();
+    if (m_lastStartNanos != 0) {
+      m_jitter.record(Math.abs(m_startNanos - m_lastStartNanos - m_periodNanos) / 1000);
+    }
+    m_lastStartNanos = m_startNanos;
+  }
+
+  /** Mark the end of a run. Publishes the statistics once enough runs have been recorded. */
+  public void stop() {
+    m_execution.record((System.nanoTime() - m_startNanos) / 1000);
+    if (++m_runs >= m_publishPeriodRuns) {
+      m_runs = 0;
+      publish(m_jitter, m_jitterPublisher, m_jitterLog);
+      publish(m_execution, m_executionPublisher, m_executionLog);
+    }
+  }
+
+  private void publish(
+      Histogram histogram, DoubleArrayPublisher publisher, DoubleArrayLogEntry logEntry) {
+    m_summary[0] = histogram.getPercentile(0.5) / 1000.0;
+    m_summary[1] = histogram.getPercentile(0.99) / 1000.0;
+    m_summary[2] = histogram.getMax() / 1000.0;
+    m_summary[3] = histogram.getCount();
+    publisher.set(m_summary);
+    logEntry.append(m_summary);
+    histogram.reset();
+  }
+}
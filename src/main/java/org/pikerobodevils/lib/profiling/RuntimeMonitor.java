@@ -0,0 +1,245 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.profiling;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import org.pikerobodevils.lib.logging.EventLog;
+import org.pikerobodevils.lib.logging.LogLevels;
+import org.tinylog.Level;
+
+/**
+ * Samples JVM health once per robot loop: bytes allocated by the robot thread, garbage collections,
+ * and heap and metaspace usage.
+ *
+ * <p>Every loop the bytes allocated by the robot thread since the previous loop are appended to
+ * {@code /Runtime/AllocatedBytes}. Collection counts and times are summed over every collector and
+ * appended to {@code /Runtime/GcCount} and {@code /Runtime/GcTimeMs} when they change. A loop that
+ * overran its period while a collection happened is counted as a GC overrun and logged as a {@code
+ * Runtime/GcOverrun} event, so loop overruns can be told apart from slow code.
+ *
+ * <p>Once per second heap and metaspace usage are logged, and {@code [heap MB, metaspace MB,
+ * allocation MB/s, GC count, GC ms, GC overruns]} is published to {@code /Runtime/Summary}.
+ * Allocation is also totalled per match phase, see {@link #logSummary()}.
+ *
+ * <p>Thread allocation counting depends on the HotSpot {@code com.sun.management} extension, on
+ * other JVMs allocation is logged as -1. Sampling allocation itself allocates a few dozen bytes per
+ * loop on Java 11, which is included in the count.
+ *
+ * <p>Not thread safe, call {@link #start()} and {@link #periodic()} from the main robot thread.
+ */
+public class RuntimeMonitor {
+  private static final String kPrefix = "/Runtime/";
+  private static final int kSummaryPeriodLoops = 50;
+  private static final long kPeriodNanos = 20_000_000;
+  // Allow for scheduling jitter before calling a loop an overrun, as the log analyzer does
+  private static final long kOverrunNanos = kPeriodNanos + 1_000_000;
+
+  private static final String[] kPhaseNames = {"Disabled", "Autonomous", "Teleop", "Test"};
+
+  private static final LogLevels.Tag s_log = LogLevels.tag("RuntimeMonitor");
+
+  private static final EventLog.EventType s_gcOverrunEvent =
+      EventLog.register("Runtime/GcOverrun", "loopMicros", "gcMillis", "collections");
+
+  private static boolean s_started = false;
+  private static long s_threadId;
+  private static com.sun.management.ThreadMXBean s_threadBean;
+  private static MemoryMXBean s_memoryBean;
+  private static MemoryPoolMXBean s_metaspace;
+  private static GarbageCollectorMXBean[] s_collectors;
+
+  private static IntegerLogEntry s_allocatedLog;
+  private static IntegerLogEntry s_gcCountLog;
+  private static IntegerLogEntry s_gcTimeLog;
+  private static DoubleLogEntry s_heapLog;
+  private static DoubleLogEntry s_metaspaceLog;
+  private static DoubleArrayPublisher s_summaryPublisher;
+  private static final double[] s_summary = new double[6];
+
+  private static long s_lastLoopNanos;
+  private static long s_lastAllocated;
+  private static long s_lastGcCount;
+  private static long s_lastGcTime;
+  private static int s_loopCount = 0;
+  private static long s_periodAllocated = 0;
+  private static long s_gcOverruns = 0;
+  private static final long[] s_phaseAllocated = new long[kPhaseNames.length];
+  private static final long[] s_phaseLoops = new long[kPhaseNames.length];
+
+  private RuntimeMonitor() {}
+
+  /** Start monitoring. Call once from robotInit, on the main robot thread. */
+  public static void start() {
+    if (s_started) {
+      return;
+    }
+    s_started = true;
+    s_threadId = Thread.currentThread().getId();
+
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean instanceof com.sun.management.ThreadMXBean) {
+      s_threadBean = (com.sun.management.ThreadMXBean) threadBean;
+      if (s_threadBean.isThreadAllocatedMemorySupported()) {
+        s_threadBean.setThreadAllocatedMemoryEnabled(true);
+      } else {
+        s_threadBean = null;
+      }
+    }
+    if (s_threadBean == null) {
+      s_log.warn("Thread allocation counting is not supported");
+    }
+
+    s_memoryBean = ManagementFactory.getMemoryMXBean();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getName().equals("Metaspace")) {
+        s_metaspace = pool;
+      }
+    }
+    List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    s_collectors = collectors.toArray(new GarbageCollectorMXBean[0]);
+
+    var log = DataLogManager.getLog();
+    s_allocatedLog = new IntegerLogEntry(log, kPrefix + "AllocatedBytes");
+    s_gcCountLog = new IntegerLogEntry(log, kPrefix + "GcCount");
+    s_gcTimeLog = new IntegerLogEntry(log, kPrefix + "GcTimeMs");
+    s_heapLog = new DoubleLogEntry(log, kPrefix + "HeapUsedMB");
+    s_metaspaceLog = new DoubleLogEntry(log, kPrefix + "MetaspaceUsedMB");
+    s_summaryPublisher =
+        NetworkTableInstance.getDefault().getDoubleArrayTopic(kPrefix + "Summary").publish();
+
+    s_lastLoopNanos = System.nanoTime();
+    s_lastAllocated = allocatedBytes();
+    s_lastGcCount = gcCount();
+    s_lastGcTime = gcTime();
+  }
+
+  /** Sample once per loop. Call at the end of robotPeriodic. */
+  public static void periodic() {
+    if (!s_started) {
+      return;
+    }
+    long now = System.nanoTime();
+    long loopNanos = now - s_lastLoopNanos;
+    s_lastLoopNanos = now;
+
+    long allocated = allocatedBytes();
+    long loopAllocated = allocated < 0 ? -1 : allocated - s_lastAllocated;
+    s_lastAllocated = allocated;
+    s_allocatedLog.append(loopAllocated);
+    if (loopAllocated >= 0) {
+      int phase = phase();
+      s_phaseAllocated[phase] += loopAllocated;
+      s_phaseLoops[phase]++;
+      s_periodAllocated += loopAllocated;
+    }
+
+    long gcCount = gcCount();
+    if (gcCount != s_lastGcCount) {
+      long gcTime = gcTime();
+      s_gcCountLog.append(gcCount);
+      s_gcTimeLog.append(gcTime);
+      if (loopNanos > kOverrunNanos) {
+        s_gcOverruns++;
+        EventLog.log(
+            s_gcOverrunEvent,
+            0,
+            loopNanos / 1000,
+            gcTime - s_lastGcTime,
+            gcCount - s_lastGcCount);
+      }
+      s_lastGcCount = gcCount;
+      s_lastGcTime = gcTime;
+    }
+
+    if (++s_loopCount >= kSummaryPeriodLoops) {
+      publishSummary();
+    }
+  }
+
+  private static void publishSummary() {
+    double seconds = s_loopCount * kPeriodNanos / 1e9;
+    double heapMb = s_memoryBean.getHeapMemoryUsage().getUsed() / 1e6;
+    double metaspaceMb = s_metaspace == null ? -1 : s_metaspace.getUsage().getUsed() / 1e6;
+    s_heapLog.append(heapMb);
+    s_metaspaceLog.append(metaspaceMb);
+
+    s_summary[0] = heapMb;
+    s_summary[1] = metaspaceMb;
+    s_summary[2] = s_periodAllocated / 1e6 / seconds;
+    s_summary[3] = s_lastGcCount;
+    s_summary[4] = s_lastGcTime;
+    s_summary[5] = s_gcOverruns;
+    s_summaryPublisher.set(s_summary);
+
+    s_loopCount = 0;
+    s_periodAllocated = 0;
+  }
+
+  private static int phase() {
+    if (DriverStation.isDisabled()) {
+      return 0;
+    } else if (DriverStation.isAutonomous()) {
+      return 1;
+    } else if (DriverStation.isTest()) {
+      return 3;
+    }
+    return 2;
+  }
+
+  private static long allocatedBytes() {
+    return s_threadBean == null ? -1 : s_threadBean.getThreadAllocatedBytes(s_threadId);
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean collector : s_collectors) {
+      count += Math.max(0, collector.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long gcTime() {
+    long time = 0;
+    for (GarbageCollectorMXBean collector : s_collectors) {
+      time += Math.max(0, collector.getCollectionTime());
+    }
+    return time;
+  }
+
+  /** Log the allocation of each match phase and the GC totals, e.g. at the end of a match. */
+  public static void logSummary() {
+    if (!s_started || !s_log.isEnabled(Level.INFO)) {
+      return;
+    }
+    for (int i = 0; i < kPhaseNames.length; i++) {
+      if (s_phaseLoops[i] == 0) {
+        continue;
+      }
+      s_log.info(
+          "{}: {} MB allocated over {} loops, {} KB per loop",
+          kPhaseNames[i],
+          String.format("%.1f", s_phaseAllocated[i] / 1e6),
+          s_phaseLoops[i],
+          String.format("%.1f", s_phaseAllocated[i] / 1e3 / s_phaseLoops[i]));
+    }
+    s_log.info(
+        "{} collections taking {} ms, {} loop overruns during a collection",
+        s_lastGcCount,
+        s_lastGcTime,
+        s_gcOverruns);
+  }
+}
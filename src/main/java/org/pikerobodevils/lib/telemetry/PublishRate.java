@@ -0,0 +1,26 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.telemetry;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets how often a {@code @Log} method or field is published by {@link Telemetry}. Entries without
+ * this annotation are published every loop.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.FIELD})
+public @interface PublishRate {
+  /**
+   * Publish rate in Hz. Rounded to a whole number of 20ms loops.
+   *
+   * @return publish rate in Hz
+   */
+  double value();
+}
@@ -0,0 +1,310 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.telemetry;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.util.sendable.Sendable;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import io.github.oblarg.oblog.Loggable;
+import io.github.oblarg.oblog.annotations.Log;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import org.pikerobodevils.lib.profiling.LoopProfiler;
+import org.tinylog.Logger;
+
+/**
+ * Publishes Oblog {@code @Log} methods and fields to NetworkTables without per-loop reflection.
+ *
+ * <p>{@link #bind} walks the {@link Loggable} fields of a root container the same way Oblog does,
+ * and resolves each {@code @Log} member to a {@link MethodHandle} once. Entries are published to
+ * {@code /Shuffleboard/<Class>/<name>} so existing dashboards keep working.
+ *
+ * <ul>
+ *   <li>Numbers are published every loop, or at the rate given by {@link PublishRate}. Slow
+ *       entries are staggered across loops.
+ *   <li>Booleans, strings and enums are published only when they change.
+ *   <li>Sendable fields are added to the Shuffleboard tab once, and updated by Shuffleboard.
+ * </ul>
+ *
+ * <p>The cost of each update is reported by the loop profiler as {@code Telemetry.update()}.
+ */
+public class Telemetry {
+  private static final double kLoopHz = 50;
+  private static final String kRoot = "/Shuffleboard/";
+  private static final String kNoName = "NO_NAME";
+
+  private static final List<Entry> s_entries = new ArrayList<>();
+  private static final LoopProfiler.Section s_section = LoopProfiler.section("Telemetry.update()");
+  private static int s_loopCount = 0;
+
+  private Telemetry() {}
+
+  private abstract static class Entry {
+    protected final String m_path;
+    protected final Object m_target;
+    protected final MethodHandle m_getter;
+    private final int m_period;
+    private final int m_offset;
+    private boolean m_failed = false;
+
+    Entry(String path, Object target, MethodHandle getter, int period, int offset) {
+      m_path = path;
+      m_target = target;
+      m_getter = getter;
+      m_period = period;
+      m_offset = offset % period;
+    }
+
+    void update(int loopCount) {
+      if (m_failed || loopCount % m_period != m_offset) {
+        return;
+      }
+      try {
+        publish();
+      } catch (Throwable t) {
+        m_failed = true;
+        Logger.tag("Telemetry").error(t, "Failed to publish {}, disabling entry", m_path);
+      }
+    }
+
+    abstract void publish() throws Throwable;
+  }
+
+  private static class DoubleEntry extends Entry {
+    private final DoublePublisher m_publisher;
+
+    DoubleEntry(String path, Object target, MethodHandle getter, int period, int offset) {
+      super(
+          path,
+          target,
+          getter.asType(MethodType.methodType(double.class, Object.class)),
+          period,
+          offset);
+      m_publisher = NetworkTableInstance.getDefault().getDoubleTopic(path).publish();
+    }
+
+    @Override
+    void publish() throws Throwable {
+      m_publisher.set((double) m_getter.invokeExact(m_target));
+    }
+  }
+
+  private static class BooleanEntry extends Entry {
+    private final BooleanPublisher m_publisher;
+    private boolean m_last;
+    private boolean m_published = false;
+
+    BooleanEntry(String path, Object target, MethodHandle getter, int period, int offset) {
+      super(
+          path,
+          target,
+          getter.asType(MethodType.methodType(boolean.class, Object.class)),
+          period,
+          offset);
+      m_publisher = NetworkTableInstance.getDefault().getBooleanTopic(path).publish();
+    }
+
+    @Override
+    void publish() throws Throwable {
+      boolean value = (boolean) m_getter.invokeExact(m_target);
+      if (!m_published || value != m_last) {
+        m_publisher.set(value);
+        m_last = value;
+        m_published = true;
+      }
+    }
+  }
+
+  /** Strings, enums and any other object, published as a string when the value changes. */
+  private static class ObjectEntry extends Entry {
+    private final StringPublisher m_publisher;
+    private Object m_last;
+    private boolean m_published = false;
+
+    ObjectEntry(String path, Object target, MethodHandle getter, int period, int offset) {
+      super(
+          path,
+          target,
+          getter.asType(MethodType.methodType(Object.class, Object.class)),
+          period,
+          offset);
+      m_publisher = NetworkTableInstance.getDefault().getStringTopic(path).publish();
+    }
+
+    @Override
+    void publish() throws Throwable {
+      Object value = m_getter.invokeExact(m_target);
+      // Identity check first, so enums and interned strings never call equals
+      if (!m_published || (value != m_last && (value == null || !value.equals(m_last)))) {
+        m_publisher.set(String.valueOf(value));
+        m_last = value;
+        m_published = true;
+      }
+    }
+  }
+
+  /**
+   * Bind every {@link Loggable} field of the root container, replacing {@code
+   * Logger.configureLoggingAndConfig}. Call once after the container is constructed.
+   *
+   * @param rootContainer object holding the subsystems, usually the RobotContainer
+   */
+  public static void bind(Object rootContainer) {
+    Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Field field : getFields(rootContainer.getClass(), false)) {
+      if (!Loggable.class.isAssignableFrom(field.getType())
+          || field.isAnnotationPresent(Log.Exclude.class)) {
+        continue;
+      }
+      Object child = getFieldValue(field, rootContainer);
+      if (child != null) {
+        bindLoggable(child, child.getClass().getSimpleName(), "", visited);
+      }
+    }
+    Logger.tag("Telemetry").debug("Bound {} telemetry entries", s_entries.size());
+  }
+
+  private static void bindLoggable(
+      Object loggable, String tab, String prefix, Set<Object> visited) {
+    if (!visited.add(loggable)) {
+      return;
+    }
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    for (Field field : getFields(loggable.getClass(), true)) {
+      if (field.isAnnotationPresent(Log.Exclude.class)) {
+        continue;
+      }
+      Log log = field.getAnnotation(Log.class);
+      if (log != null) {
+        String name = prefix + getName(log, field.getName());
+        Object value = getFieldValue(field, loggable);
+        if (value instanceof Sendable) {
+          Shuffleboard.getTab(tab).add(name, (Sendable) value);
+        } else {
+          try {
+            addEntry(
+                tab,
+                name,
+                loggable,
+                lookup.unreflectGetter(field),
+                field.getType(),
+                field.getAnnotation(PublishRate.class));
+          } catch (IllegalAccessException e) {
+            Logger.tag("Telemetry").error(e, "Unable to bind field {}", field.getName());
+          }
+        }
+      } else if (Loggable.class.isAssignableFrom(field.getType())) {
+        Object child = getFieldValue(field, loggable);
+        if (child != null) {
+          bindLoggable(child, tab, prefix + field.getName() + "/", visited);
+        }
+      }
+    }
+
+    for (Class<?> clazz = loggable.getClass();
+        clazz != null && Loggable.class.isAssignableFrom(clazz);
+        clazz = clazz.getSuperclass()) {
+      for (Method method : clazz.getDeclaredMethods()) {
+        Log log = method.getAnnotation(Log.class);
+        if (log == null
+            || method.getParameterCount() != 0
+            || Modifier.isStatic(method.getModifiers())) {
+          continue;
+        }
+        try {
+          method.setAccessible(true);
+          addEntry(
+              tab,
+              prefix + getName(log, method.getName()),
+              loggable,
+              lookup.unreflect(method),
+              method.getReturnType(),
+              method.getAnnotation(PublishRate.class));
+        } catch (IllegalAccessException | RuntimeException e) {
+          Logger.tag("Telemetry").error(e, "Unable to bind method {}", method.getName());
+        }
+      }
+    }
+  }
+
+  private static void addEntry(
+      String tab,
+      String name,
+      Object target,
+      MethodHandle getter,
+      Class<?> type,
+      PublishRate rate) {
+    String path = kRoot + tab + "/" + name;
+    int period = rate == null ? 1 : (int) Math.max(1, Math.round(kLoopHz / rate.value()));
+    int offset = s_entries.size();
+    if (type == double.class
+        || type == float.class
+        || type == int.class
+        || type == long.class
+        || type == short.class
+        || type == byte.class) {
+      s_entries.add(new DoubleEntry(path, target, getter, period, offset));
+    } else if (type == boolean.class) {
+      s_entries.add(new BooleanEntry(path, target, getter, period, offset));
+    } else if (!type.isPrimitive()) {
+      s_entries.add(new ObjectEntry(path, target, getter, period, offset));
+    } else {
+      Logger.tag("Telemetry").warn("Unsupported telemetry type {} for {}", type, path);
+    }
+  }
+
+  private static String getName(Log log, String memberName) {
+    String name = log.name();
+    return name.isEmpty() || kNoName.equals(name) ? memberName : name;
+  }
+
+  private static List<Field> getFields(Class<?> clazz, boolean loggableOnly) {
+    List<Field> fields = new ArrayList<>();
+    for (Class<?> c = clazz;
+        c != null && c != Object.class && (!loggableOnly || Loggable.class.isAssignableFrom(c));
+        c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          fields.add(field);
+        }
+      }
+    }
+    return fields;
+  }
+
+  private static Object getFieldValue(Field field, Object target) {
+    try {
+      field.setAccessible(true);
+      return field.get(target);
+    } catch (IllegalAccessException | RuntimeException e) {
+      Logger.tag("Telemetry").error(e, "Unable to read field {}", field.getName());
+      return null;
+    }
+  }
+
+  /** Publish entries that are due this loop. Call once per loop in robotPeriodic. */
+  public static void update() {
+    s_section.start();
+    for (int i = 0; i < s_entries.size(); i++) {
+      s_entries.get(i).update(s_loopCount);
+    }
+    s_loopCount++;
+    s_section.stop();
+  }
+}
@@ -0,0 +1,186 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.lib.trajectory;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.Filesystem;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * A trajectory read straight from a memory mapped binary file. Samples are decoded only when
+ * {@link #sample} touches them, so loading a trajectory costs no more than mapping the file.
+ *
+ * <p>File layout, little endian:
+ *
+ * <ul>
+ *   <li>Header: magic {@code "TRAJ"}, format version, sample count, reserved (4 ints), then total
+ *       time in seconds (double)
+ *   <li>Samples: time, x, y, heading in radians, velocity, acceleration and curvature (7 floats)
+ * </ul>
+ *
+ * <p>Files are written at build time by {@link #write}, see the {@code generateTrajectories} task.
+ */
+public class MappedTrajectory {
+  public static final String kDirectory = "trajectories";
+  public static final String kExtension = ".traj";
+
+  private static final int kMagic = 0x4A415254; // "TRAJ" in little endian
+  private static final int kVersion = 1;
+  private static final int kHeaderBytes = 4 * 4 + 8;
+  private static final int kSampleFloats = 7;
+  private static final int kSampleBytes = kSampleFloats * 4;
+
+  private final ByteBuffer m_buffer;
+  private final int m_count;
+  private final double m_totalTime;
+
+  private MappedTrajectory(ByteBuffer buffer) throws IOException {
+    m_buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (m_buffer.limit() < kHeaderBytes || m_buffer.getInt(0) != kMagic) {
+      throw new IOException("Not a trajectory file");
+    }
+    if (m_buffer.getInt(4) != kVersion) {
+      throw new IOException("Unsupported trajectory version " + m_buffer.getInt(4));
+    }
+    m_count = m_buffer.getInt(8);
+    m_totalTime = m_buffer.getDouble(16);
+    if (m_count <= 0 || m_buffer.limit() < kHeaderBytes + m_count * kSampleBytes) {
+      throw new IOException("Truncated trajectory file");
+    }
+  }
+
+  /**
+   * Map a trajectory from the deploy directory.
+   *
+   * @param name name of the trajectory, without directory or extension
+   * @return the trajectory
+   * @throws IOException if the file is missing or invalid
+   */
+  public static MappedTrajectory load(String name) throws IOException {
+    Path directory = Filesystem.getDeployDirectory().toPath().resolve(kDirectory);
+    return load(directory.resolve(name + kExtension));
+  }
+
+  /**
+   * Map a trajectory file.
+   *
+   * @param path path to the file
+   * @return the trajectory
+   * @throws IOException if the file is missing or invalid
+   */
+  public static MappedTrajectory load(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      // The mapping stays valid after the channel is closed
+      return new MappedTrajectory(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Encode a trajectory to a file.
+   *
+   * @param trajectory trajectory to write
+   * @param path file to write
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(Trajectory trajectory, Path path) throws IOException {
+    List<Trajectory.State> states = trajectory.getStates();
+    ByteBuffer buffer =
+        ByteBuffer.allocate(kHeaderBytes + states.size() * kSampleBytes)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(kMagic).putInt(kVersion).putInt(states.size()).putInt(0);
+    buffer.putDouble(trajectory.getTotalTimeSeconds());
+    for (Trajectory.State state : states) {
+      buffer.putFloat((float) state.timeSeconds);
+      buffer.putFloat((float) state.poseMeters.getX());
+      buffer.putFloat((float) state.poseMeters.getY());
+      buffer.putFloat((float) state.poseMeters.getRotation().getRadians());
+      buffer.putFloat((float) state.velocityMetersPerSecond);
+      buffer.putFloat((float) state.accelerationMetersPerSecondSq);
+      buffer.putFloat((float) state.curvatureRadPerMeter);
+    }
+    Files.write(path, buffer.array());
+  }
+
+  public double getTotalTimeSeconds() {
+    return m_totalTime;
+  }
+
+  public int size() {
+    return m_count;
+  }
+
+  /**
+   * Returns the pose at the start of the trajectory.
+   *
+   * @return initial pose
+   */
+  public Pose2d getInitialPose() {
+    return new Pose2d(get(0, 1), get(0, 2), new Rotation2d(get(0, 3)));
+  }
+
+  /**
+   * Sample the trajectory, interpolating linearly between the two nearest samples. Times outside
+   * the trajectory return the first or last sample.
+   *
+   * @param timeSeconds time since the start of the trajectory
+   * @param state state to fill in
+   */
+  public void sample(double timeSeconds, Trajectory.State state) {
+    if (timeSeconds <= get(0, 0)) {
+      fill(0, 0, 0, state);
+      return;
+    }
+    if (timeSeconds >= get(m_count - 1, 0)) {
+      fill(m_count - 1, m_count - 1, 0, state);
+      return;
+    }
+
+    // Find the first sample at or after the requested time
+    int low = 1;
+    int high = m_count - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (get(mid, 0) < timeSeconds) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    double previousTime = get(low - 1, 0);
+    double t = (timeSeconds - previousTime) / (get(low, 0) - previousTime);
+    fill(low - 1, low, t, state);
+    state.timeSeconds = timeSeconds;
+  }
+
+  private void fill(int from, int to, double t, Trajectory.State state) {
+    double heading = get(from, 3) + t * MathUtil.angleModulus(get(to, 3) - get(from, 3));
+    state.timeSeconds = lerp(from, to, 0, t);
+    state.poseMeters =
+        new Pose2d(lerp(from, to, 1, t), lerp(from, to, 2, t), new Rotation2d(heading));
+    state.velocityMetersPerSecond = lerp(from, to, 4, t);
+    state.accelerationMetersPerSecondSq = lerp(from, to, 5, t);
+    state.curvatureRadPerMeter = lerp(from, to, 6, t);
+  }
+
+  private double lerp(int from, int to, int field, double t) {
+    double a = get(from, field);
+    return a + t * (get(to, field) - a);
+  }
+
+  private double get(int sample, int field) {
+    return m_buffer.getFloat(kHeaderBytes + sample * kSampleBytes + field * 4);
+  }
+}
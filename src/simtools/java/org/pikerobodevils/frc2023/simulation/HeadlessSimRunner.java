@@ -0,0 +1,303 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.frc2023.simulation;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.pikerobodevils.frc2023.Robot;
+import org.pikerobodevils.frc2023.RobotContainer;
+import org.pikerobodevils.lib.profiling.Histogram;
+
+/**
+ * Runs autonomous routines in simulation without a GUI and faster than real time.
+ *
+ * <p>The HAL clock is paused and stepped one robot period at a time with {@link
+ * SimHooks#stepTiming}, so a scenario runs as fast as the robot code can. Each scenario is run in
+ * its own JVM, since the HAL and the command scheduler are global, and scenarios run in parallel
+ * across all cores. Each scenario steps {@link DriverStationSim} through disabled, autonomous and
+ * teleop.
+ *
+ * <p>Usage, normally through {@code ./gradlew simulateAutos}:
+ *
+ * <ul>
+ *   <li>{@code [--jobs N] [--report FILE] [AUTO...]}: run the given autos, or every auto, and write
+ *       a JSON report
+ *   <li>{@code --scenario AUTO --output FILE}: run a single auto in this JVM
+ *   <li>{@code --list}: print the name of every auto
+ * </ul>
+ */
+public final class HeadlessSimRunner {
+  private static final double kPeriod = 0.02;
+  private static final double kDisabledSeconds = 1;
+  private static final double kAutoSeconds = 15;
+  private static final double kTeleopSeconds = 5;
+  private static final long kScenarioTimeoutSeconds = 300;
+  private static final String kListPrefix = "AUTO: ";
+
+  private HeadlessSimRunner() {}
+
+  public static void main(String... args) throws Exception {
+    String scenario = null;
+    String output = null;
+    String report = "build/sim-report.json";
+    int jobs = Runtime.getRuntime().availableProcessors();
+    boolean list = false;
+    List<String> scenarios = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--scenario":
+          scenario = args[++i];
+          break;
+        case "--output":
+          output = args[++i];
+          break;
+        case "--report":
+          report = args[++i];
+          break;
+        case "--jobs":
+          jobs = Integer.parseInt(args[++i]);
+          break;
+        case "--list":
+          list = true;
+          break;
+        default:
+          scenarios.add(args[i]);
+      }
+    }
+
+    int status;
+    if (list) {
+      status = listScenarios();
+    } else if (scenario != null) {
+      String result = runScenario(scenario);
+      if (output != null) {
+        Files.write(Paths.get(output), result.getBytes(StandardCharsets.UTF_8));
+      } else {
+        System.out.println(result);
+      }
+      status = 0;
+    } else {
+      status = runAll(scenarios, jobs, Paths.get(report));
+    }
+    // The robot thread and vendor threads are not daemons
+    System.exit(status);
+  }
+
+  static Robot startRobot() {
+    HAL.initialize(500, 0);
+    SimHooks.pauseTiming();
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.notifyNewData();
+
+    Robot robot = new Robot();
+    Thread thread = new Thread(robot::startCompetition, "Robot");
+    thread.setDaemon(true);
+    thread.start();
+    // Returns once robotInit has finished
+    SimHooks.waitForProgramStart();
+    return robot;
+  }
+
+  private static int listScenarios() {
+    Robot robot = startRobot();
+    for (String name : robot.getRobotContainer().getAutoRegistry().getNames()) {
+      System.out.println(kListPrefix + name);
+    }
+    robot.endCompetition();
+    return 0;
+  }
+
+  /** State of one scenario, updated after every step. */
+  private static class Scenario {
+    final Robot robot;
+    final RobotContainer container;
+    final Histogram loopTimes = new Histogram(50, 400);
+    double time = 0;
+    double autoStart = Double.NaN;
+    double autoEnd = Double.NaN;
+    double scoreTime = Double.NaN;
+
+    Scenario(Robot robot) {
+      this.robot = robot;
+      this.container = robot.getRobotContainer();
+    }
+
+    void run(double seconds, boolean inAuto) {
+      int steps = (int) Math.round(seconds / kPeriod);
+      for (int i = 0; i < steps; i++) {
+        long startNanos = System.nanoTime();
+        SimHooks.stepTiming(kPeriod);
+        loopTimes.record((System.nanoTime() - startNanos) / 1000);
+        time += kPeriod;
+
+        if (inAuto) {
+          // The rollers only run in auto to eject the preloaded game piece
+          if (Double.isNaN(scoreTime) && Math.abs(container.intake.getOutput()) > 0.05) {
+            scoreTime = time - autoStart;
+          }
+          Command auto = robot.getScheduledAutonomousCommand();
+          if (Double.isNaN(autoEnd)
+              && auto != null
+              && !CommandScheduler.getInstance().isScheduled(auto)) {
+            autoEnd = time - autoStart;
+          }
+        }
+      }
+    }
+  }
+
+  private static String runScenario(String name) {
+    long wallStart = System.nanoTime();
+    Robot robot = startRobot();
+    Scenario scenario = new Scenario(robot);
+    scenario.container.getAutoRegistry().select(name);
+
+    // Disabled long enough for the auto to be built ahead of time
+    scenario.run(kDisabledSeconds, false);
+
+    DriverStationSim.setAutonomous(true);
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+    scenario.autoStart = scenario.time;
+    scenario.run(kAutoSeconds, true);
+    double finalArmAngle = scenario.container.arm.getPositionDeg();
+
+    DriverStationSim.setAutonomous(false);
+    DriverStationSim.notifyNewData();
+    scenario.run(kTeleopSeconds, false);
+
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.notifyNewData();
+    robot.endCompetition();
+
+    double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+    Histogram loops = scenario.loopTimes;
+    return "{"
+        + ("\"scenario\": " + quote(name))
+        + (", \"simulatedSeconds\": " + number(scenario.time))
+        + (", \"wallSeconds\": " + number(wallSeconds))
+        + (", \"realTimeFactor\": " + number(scenario.time / wallSeconds))
+        + (", \"autoDuration\": " + number(scenario.autoEnd))
+        + (", \"timeToScore\": " + number(scenario.scoreTime))
+        + (", \"finalArmAngleDeg\": " + number(finalArmAngle))
+        + ", \"loopTimeMs\": {"
+        + ("\"p50\": " + number(loops.getPercentile(0.5) / 1000.0))
+        + (", \"p99\": " + number(loops.getPercentile(0.99) / 1000.0))
+        + (", \"max\": " + number(loops.getMax() / 1000.0))
+        + (", \"mean\": " + number(loops.getMean() / 1000.0))
+        + "}}";
+  }
+
+  private static int runAll(List<String> scenarios, int jobs, Path report) throws Exception {
+    if (scenarios.isEmpty()) {
+      scenarios = listChildScenarios();
+    }
+    Path workDir = Files.createTempDirectory("sim-runner");
+    ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, jobs));
+    List<Future<String>> results = new ArrayList<>();
+    for (String name : scenarios) {
+      results.add(pool.submit(() -> runChild(name, workDir)));
+    }
+    pool.shutdown();
+
+    StringBuilder json = new StringBuilder("{\"scenarios\": [\n");
+    int failures = 0;
+    for (int i = 0; i < results.size(); i++) {
+      String result;
+      try {
+        result = results.get(i).get();
+      } catch (Exception e) {
+        failures++;
+        String error = quote(e.toString());
+        result = "{\"scenario\": " + quote(scenarios.get(i)) + ", \"error\": " + error + "}";
+      }
+      json.append("  ").append(result).append(i + 1 < results.size() ? ",\n" : "\n");
+      System.out.println(result);
+    }
+    json.append("]}\n");
+
+    if (report.getParent() != null) {
+      Files.createDirectories(report.getParent());
+    }
+    Files.write(report, json.toString().getBytes(StandardCharsets.UTF_8));
+    System.out.printf(
+        "%d scenarios, %d failed, report written to %s%n", scenarios.size(), failures, report);
+    return failures == 0 ? 0 : 1;
+  }
+
+  private static List<String> listChildScenarios() throws IOException, InterruptedException {
+    List<String> names = new ArrayList<>();
+    Process process = childProcess("--list").redirectErrorStream(true).start();
+    String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    process.waitFor();
+    for (String line : output.split("\\R")) {
+      if (line.startsWith(kListPrefix)) {
+        names.add(line.substring(kListPrefix.length()));
+      }
+    }
+    return names;
+  }
+
+  private static String runChild(String name, Path workDir) throws Exception {
+    String fileName = name.replaceAll("[^A-Za-z0-9]+", "_");
+    Path output = workDir.resolve(fileName + ".json");
+    File log = workDir.resolve(fileName + ".log").toFile();
+    Process process =
+        childProcess("--scenario", name, "--output", output.toString())
+            .redirectErrorStream(true)
+            .redirectOutput(log)
+            .start();
+    if (!process.waitFor(kScenarioTimeoutSeconds, TimeUnit.SECONDS)) {
+      process.destroyForcibly();
+      throw new IOException("Timed out, see " + log);
+    }
+    if (process.exitValue() != 0 || !Files.exists(output)) {
+      throw new IOException("Exited with " + process.exitValue() + ", see " + log);
+    }
+    return new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+  }
+
+  private static ProcessBuilder childProcess(String... args) {
+    String java =
+        ProcessHandle.current()
+            .info()
+            .command()
+            .orElse(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    List<String> command = new ArrayList<>();
+    command.add(java);
+    command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(HeadlessSimRunner.class.getName());
+    command.addAll(List.of(args));
+    return new ProcessBuilder(command);
+  }
+
+  private static String quote(String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+
+  private static String number(double value) {
+    return Double.isFinite(value) ? String.format(Locale.ROOT, "%.4f", value) : "null";
+  }
+}
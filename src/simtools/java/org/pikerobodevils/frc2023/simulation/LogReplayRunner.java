@@ -0,0 +1,154 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.frc2023.simulation;
+
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import org.pikerobodevils.frc2023.Robot;
+import org.pikerobodevils.lib.InputSnapshot;
+import org.pikerobodevils.lib.logging.WpiLogIndex;
+
+/**
+ * Replays a match log through the robot code, without a GUI and as fast as the code can run.
+ *
+ * <p>The inputs logged by {@link InputSnapshot} replace the hardware reads, and the logged driver
+ * station state and joysticks are fed to {@link DriverStationSim}. The HAL clock is paused and
+ * stepped one robot period for every logged loop, so a replay gives the same result every time,
+ * even if the logged loops overran. The replayed robot writes its own log to the sim log
+ * directory, to compare against the original.
+ *
+ * <p>Usage, normally through {@code ./gradlew replayLog --args=FILE}: {@code LogReplayRunner
+ * FILE.wpilog}
+ */
+public final class LogReplayRunner {
+  private static final double kPeriod = 0.02;
+  private static final int kJoysticks = 6;
+
+  // Written before each step, read by the robot thread during it
+  private static volatile long s_timestamp;
+
+  private LogReplayRunner() {}
+
+  public static void main(String... args) throws Exception {
+    if (args.length != 1) {
+      System.err.println("Usage: LogReplayRunner <log.wpilog>");
+      System.exit(1);
+    }
+    WpiLogIndex log = WpiLogIndex.load(args[0]);
+    WpiLogIndex.Series loops = log.get(InputSnapshot.kLoopEntry);
+    if (loops == null || loops.size() == 0) {
+      System.err.println(args[0] + " has no " + InputSnapshot.kLoopEntry + " entry to replay");
+      System.exit(1);
+    }
+
+    s_timestamp = loops.getTimestamp(0);
+    InputSnapshot.setSource(
+        new InputSnapshot.Source() {
+          @Override
+          public DoubleSupplier getDouble(String name) {
+            WpiLogIndex.Series series = log.get(InputSnapshot.kLogPrefix + name);
+            if (series == null) {
+              System.out.println("Not in the log, reading the sim: " + name);
+              return null;
+            }
+            return () -> series.valueAt(s_timestamp, 0);
+          }
+
+          @Override
+          public BooleanSupplier getBoolean(String name) {
+            WpiLogIndex.Series series = log.get(InputSnapshot.kLogPrefix + name);
+            if (series == null) {
+              System.out.println("Not in the log, reading the sim: " + name);
+              return null;
+            }
+            return () -> series.valueAt(s_timestamp, 0) != 0;
+          }
+        });
+
+    long wallStart = System.nanoTime();
+    Robot robot = HeadlessSimRunner.startRobot();
+    DriverStationReplay driverStation = new DriverStationReplay(log);
+    for (int i = 0; i < loops.size(); i++) {
+      s_timestamp = loops.getTimestamp(i);
+      driverStation.apply(s_timestamp);
+      SimHooks.stepTiming(kPeriod);
+    }
+    robot.endCompetition();
+
+    double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+    double loggedSeconds = (loops.getTimestamp(loops.size() - 1) - loops.getTimestamp(0)) / 1e6;
+    System.out.printf(
+        Locale.ROOT,
+        "Replayed %d loops (%.1f s) in %.2f s, %.1fx real time%n",
+        loops.size(),
+        loggedSeconds,
+        wallSeconds,
+        loggedSeconds / wallSeconds);
+    // The robot thread and vendor threads are not daemons
+    System.exit(0);
+  }
+
+  /** Feeds the logged driver station state to the sim. */
+  private static class DriverStationReplay {
+    private final WpiLogIndex.Series enabled;
+    private final WpiLogIndex.Series autonomous;
+    private final WpiLogIndex.Series test;
+    private final WpiLogIndex.Series estop;
+    private final WpiLogIndex.Series[] axes = new WpiLogIndex.Series[kJoysticks];
+    private final WpiLogIndex.Series[] buttons = new WpiLogIndex.Series[kJoysticks];
+    private final WpiLogIndex.Series[] povs = new WpiLogIndex.Series[kJoysticks];
+
+    DriverStationReplay(WpiLogIndex log) {
+      enabled = log.get("DS:enabled");
+      autonomous = log.get("DS:autonomous");
+      test = log.get("DS:test");
+      estop = log.get("DS:estop");
+      for (int stick = 0; stick < kJoysticks; stick++) {
+        axes[stick] = log.get("DS:joystick" + stick + "/axes");
+        buttons[stick] = log.get("DS:joystick" + stick + "/buttons");
+        povs[stick] = log.get("DS:joystick" + stick + "/povs");
+      }
+    }
+
+    void apply(long timestamp) {
+      DriverStationSim.setEnabled(isSet(enabled, timestamp));
+      DriverStationSim.setAutonomous(isSet(autonomous, timestamp));
+      DriverStationSim.setTest(isSet(test, timestamp));
+      DriverStationSim.setEStop(isSet(estop, timestamp));
+      for (int stick = 0; stick < kJoysticks; stick++) {
+        double[] values = arrayAt(axes[stick], timestamp);
+        DriverStationSim.setJoystickAxisCount(stick, values.length);
+        for (int i = 0; i < values.length; i++) {
+          DriverStationSim.setJoystickAxis(stick, i, values[i]);
+        }
+        values = arrayAt(buttons[stick], timestamp);
+        DriverStationSim.setJoystickButtonCount(stick, values.length);
+        for (int i = 0; i < values.length; i++) {
+          // Buttons are numbered from 1
+          DriverStationSim.setJoystickButton(stick, i + 1, values[i] != 0);
+        }
+        values = arrayAt(povs[stick], timestamp);
+        DriverStationSim.setJoystickPOVCount(stick, values.length);
+        for (int i = 0; i < values.length; i++) {
+          DriverStationSim.setJoystickPOV(stick, i, (int) values[i]);
+        }
+      }
+      DriverStationSim.notifyNewData();
+    }
+
+    private static boolean isSet(WpiLogIndex.Series series, long timestamp) {
+      return series != null && series.valueAt(timestamp, 0) != 0;
+    }
+
+    private static double[] arrayAt(WpiLogIndex.Series series, long timestamp) {
+      double[] values = series == null ? null : series.arrayAt(timestamp);
+      return values == null ? new double[0] : values;
+    }
+  }
+}
@@ -0,0 +1,294 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.sysid;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Fits arm gains from SysId recordings.
+ *
+ * <p>Every recording is fit on its own, in parallel on a fork-join pool, and the fits are then
+ * combined into a fit of all of them. Writes a report comparing the fits to {@code report.txt} and
+ * the combined gains as Java constants to {@code ArmSysIdGains.java} in the output directory.
+ *
+ * <p>Usage, normally through {@code ./gradlew analyzeSysId}:
+ *
+ * <pre>
+ * AnalyzeSysId [options] FILE|DIRECTORY...
+ *   --output DIR              output directory, default build/sysid
+ *   --units-per-rotation N    override the units stored in the recordings
+ *   --motion-threshold RAD/S  drop slower samples, default 0.05
+ *   --max-position-error RAD  LQR position tolerance, default 1
+ *   --max-velocity-error RAD/S  LQR velocity tolerance, default 10
+ *   --max-effort VOLTS        LQR effort, default 7
+ *   --period SECONDS          controller period, default 0.02
+ *   --delay SECONDS           measurement delay, default 0
+ *   --jobs N                  parallelism, default the number of processors
+ * </pre>
+ */
+public final class AnalyzeSysId {
+  private static final String kConstantsClass = "ArmSysIdGains";
+
+  private AnalyzeSysId() {}
+
+  /** The fit of one recording, or why it failed. */
+  private static class Result {
+    final String name;
+    final ArmFit fit;
+    final String error;
+
+    Result(String name, ArmFit fit, String error) {
+      this.name = name;
+      this.fit = fit;
+      this.error = error;
+    }
+  }
+
+  public static void main(String... args) throws Exception {
+    Path output = Paths.get("build", "sysid");
+    double unitsPerRotation = Double.NaN;
+    double motionThreshold = 0.05;
+    double maxPositionError = 1;
+    double maxVelocityError = 10;
+    double maxEffort = 7;
+    double period = 0.02;
+    double delay = 0;
+    int jobs = Runtime.getRuntime().availableProcessors();
+    List<Path> inputs = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--output":
+          output = Paths.get(args[++i]);
+          break;
+        case "--units-per-rotation":
+          unitsPerRotation = Double.parseDouble(args[++i]);
+          break;
+        case "--motion-threshold":
+          motionThreshold = Double.parseDouble(args[++i]);
+          break;
+        case "--max-position-error":
+          maxPositionError = Double.parseDouble(args[++i]);
+          break;
+        case "--max-velocity-error":
+          maxVelocityError = Double.parseDouble(args[++i]);
+          break;
+        case "--max-effort":
+          maxEffort = Double.parseDouble(args[++i]);
+          break;
+        case "--period":
+          period = Double.parseDouble(args[++i]);
+          break;
+        case "--delay":
+          delay = Double.parseDouble(args[++i]);
+          break;
+        case "--jobs":
+          jobs = Integer.parseInt(args[++i]);
+          break;
+        default:
+          inputs.add(Paths.get(args[i]));
+      }
+    }
+
+    List<ArmDataset> datasets = new ArrayList<>();
+    for (Path file : findRecordings(inputs)) {
+      datasets.add(new ArmDataset(file, unitsPerRotation, motionThreshold));
+    }
+    if (datasets.isEmpty()) {
+      System.err.println("No SysId recordings found in " + inputs);
+      System.exit(1);
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, jobs));
+    List<Result> results;
+    try {
+      results =
+          pool.submit(
+                  () ->
+                      datasets.parallelStream()
+                          .map(AnalyzeSysId::fit)
+                          .collect(Collectors.toList()))
+              .get();
+    } finally {
+      pool.shutdown();
+    }
+
+    ArmFit combined = new ArmFit();
+    List<String> combinedNames = new ArrayList<>();
+    for (Result result : results) {
+      if (result.fit != null) {
+        combined.addAll(result.fit);
+        combinedNames.add(result.name);
+      }
+    }
+
+    StringBuilder report = new StringBuilder();
+    report.append(
+        String.format(
+            Locale.ROOT,
+            "%-40s %8s %8s %8s %8s %8s %8s %8s %8s %7s%n",
+            "Recording",
+            "kS",
+            "kG",
+            "kV",
+            "kA",
+            "kP",
+            "kD",
+            "Offset",
+            "R^2",
+            "Samples"));
+    for (Result result : results) {
+      if (result.error != null) {
+        report.append(String.format(Locale.ROOT, "%-40s %s%n", result.name, result.error));
+        continue;
+      }
+      appendRow(
+          report,
+          result.name,
+          solve(result.fit, maxPositionError, maxVelocityError, maxEffort, period, delay));
+    }
+
+    Files.createDirectories(output);
+    int status = 0;
+    if (combined.getSamples() > 0) {
+      ArmGains gains =
+          solve(combined, maxPositionError, maxVelocityError, maxEffort, period, delay);
+      appendRow(report, "Combined", gains);
+      String constants =
+          constants(gains, combinedNames, maxPositionError, maxVelocityError, period);
+      Files.write(
+          output.resolve(kConstantsClass + ".java"), constants.getBytes(StandardCharsets.UTF_8));
+    } else {
+      status = 1;
+    }
+    Files.write(output.resolve("report.txt"), report.toString().getBytes(StandardCharsets.UTF_8));
+    System.out.print(report);
+    System.out.println("Written to " + output);
+    System.exit(status);
+  }
+
+  private static List<Path> findRecordings(List<Path> inputs) throws IOException {
+    List<Path> files = new ArrayList<>();
+    for (Path input : inputs) {
+      if (Files.isDirectory(input)) {
+        try (Stream<Path> children = Files.list(input)) {
+          children
+              .filter(path -> path.getFileName().toString().startsWith("sysid_data"))
+              .filter(path -> path.getFileName().toString().endsWith(".json"))
+              .sorted()
+              .forEach(files::add);
+        }
+      } else {
+        files.add(input);
+      }
+    }
+    return files;
+  }
+
+  /** Recordings that aren't arm recordings are reported, unreadable ones fail the run. */
+  private static Result fit(ArmDataset dataset) {
+    String name = dataset.getPath().getFileName().toString();
+    try {
+      ArmFit fit = dataset.fit();
+      if (fit.getSamples() < ArmFit.kMinSamples) {
+        return new Result(name, null, "Only " + fit.getSamples() + " samples in motion");
+      }
+      return new Result(name, fit, null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (IllegalArgumentException e) {
+      return new Result(name, null, e.getMessage());
+    }
+  }
+
+  private static ArmGains solve(
+      ArmFit fit,
+      double maxPositionError,
+      double maxVelocityError,
+      double maxEffort,
+      double period,
+      double delay) {
+    return fit.solve().withFeedback(maxPositionError, maxVelocityError, maxEffort, period, delay);
+  }
+
+  private static void appendRow(StringBuilder report, String name, ArmGains gains) {
+    report.append(
+        String.format(
+            Locale.ROOT,
+            "%-40s %8.4f %8.4f %8.4f %8.4f %8.4f %8.4f %8.2f %8.4f %7d%n",
+            name,
+            gains.kS,
+            gains.kG,
+            gains.kV,
+            gains.kA,
+            gains.kP,
+            gains.kD,
+            Math.toDegrees(gains.offset),
+            gains.rSquared,
+            gains.samples));
+  }
+
+  private static String constants(
+      ArmGains gains,
+      List<String> recordings,
+      double maxPositionError,
+      double maxVelocityError,
+      double period) {
+    StringBuilder java = new StringBuilder();
+    java.append("/* Copyright 2023 Pike RoboDevils, FRC Team 1018\n")
+        .append(" * Use of this source code is governed by an MIT-style\n")
+        .append(" * license that can be found in the LICENSE.md file or\n")
+        .append(" * at https://opensource.org/licenses/MIT. */\n\n")
+        .append("package org.pikerobodevils.frc2023;\n\n")
+        .append("/**\n")
+        .append(" * Arm gains generated by AnalyzeSysId, in volts and radians. Do not edit.\n")
+        .append(" *\n")
+        .append(" * <p>Fit from:\n")
+        .append(" *\n")
+        .append(" * <ul>\n");
+    for (String recording : recordings) {
+      java.append(" *   <li>").append(recording).append('\n');
+    }
+    java.append(" * </ul>\n")
+        .append(" */\n")
+        .append("public final class ")
+        .append(kConstantsClass)
+        .append(" {\n");
+    constant(java, "KS", gains.kS);
+    constant(java, "KG", gains.kG);
+    constant(java, "KV", gains.kV);
+    constant(java, "KA", gains.kA);
+    java.append(
+        String.format(
+            Locale.ROOT,
+            "%n  // LQR with %.3g rad, %.3g rad/s tolerances at a %.3g s period%n",
+            maxPositionError,
+            maxVelocityError,
+            period));
+    constant(java, "KP", gains.kP);
+    constant(java, "KD", gains.kD);
+    java.append('\n');
+    constant(java, "OFFSET_RADIANS", gains.offset);
+    constant(java, "R_SQUARED", gains.rSquared);
+    java.append("\n  private ").append(kConstantsClass).append("() {}\n}\n");
+    return java.toString();
+  }
+
+  private static void constant(StringBuilder java, String name, double value) {
+    java.append(
+        String.format(Locale.ROOT, "  public static final double %s = %.6g;%n", name, value));
+  }
+}
@@ -0,0 +1,154 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.sysid;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Reads a SysId arm recording and fits it.
+ *
+ * <p>The file is read with a streaming parser and samples go straight into an {@link ArmFit}, so
+ * no part of the recording is held in memory. The units are stored after the data, so the file is
+ * read twice: once for the units, skipping the data, and once for the samples.
+ *
+ * <p>Each test is an array of {@code [time, volts, position, velocity]} samples. Acceleration is
+ * the difference between consecutive velocities. Samples before the voltage is applied, below the
+ * motion threshold, or across a gap in the recording are dropped.
+ */
+public class ArmDataset {
+  private static final JsonFactory kJsonFactory = new JsonFactory();
+  private static final double kMaxSampleGapSeconds = 0.05;
+
+  private final Path m_path;
+  private final double m_unitsPerRotation;
+  private final double m_motionThreshold;
+
+  /**
+   * Create a dataset.
+   *
+   * @param path SysId JSON file
+   * @param unitsPerRotation units of the recorded position per arm rotation, or NaN to use the
+   *     value from the file
+   * @param motionThreshold minimum velocity of a sample in radians per second
+   */
+  public ArmDataset(Path path, double unitsPerRotation, double motionThreshold) {
+    m_path = path;
+    m_unitsPerRotation = unitsPerRotation;
+    m_motionThreshold = motionThreshold;
+  }
+
+  public Path getPath() {
+    return m_path;
+  }
+
+  /**
+   * Read and fit the recording.
+   *
+   * @return the fit of every test in the recording
+   * @throws IOException if the file can't be read
+   * @throws IllegalArgumentException if the file is not an arm recording
+   */
+  public ArmFit fit() throws IOException {
+    double unitsPerRotation = readUnitsPerRotation();
+    if (!Double.isNaN(m_unitsPerRotation)) {
+      unitsPerRotation = m_unitsPerRotation;
+    }
+    if (!(unitsPerRotation > 0)) {
+      throw new IllegalArgumentException(m_path + " has no unitsPerRotation");
+    }
+    double radiansPerUnit = 2 * Math.PI / unitsPerRotation;
+
+    ArmFit fit = new ArmFit();
+    try (JsonParser parser = kJsonFactory.createParser(m_path.toFile())) {
+      expect(parser.nextToken(), JsonToken.START_OBJECT);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        JsonToken value = parser.nextToken();
+        if (value == JsonToken.START_ARRAY && isTest(parser.getCurrentName())) {
+          readTest(parser, radiansPerUnit, fit);
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+    return fit;
+  }
+
+  /** Checks this is an arm recording and returns its units per rotation, or NaN if missing. */
+  private double readUnitsPerRotation() throws IOException {
+    String test = null;
+    double unitsPerRotation = Double.NaN;
+    try (JsonParser parser = kJsonFactory.createParser(m_path.toFile())) {
+      expect(parser.nextToken(), JsonToken.START_OBJECT);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        if ("test".equals(name)) {
+          test = parser.getValueAsString();
+        } else if ("unitsPerRotation".equals(name)) {
+          unitsPerRotation = parser.getValueAsDouble();
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+    if (!"Arm".equals(test)) {
+      throw new IllegalArgumentException(m_path + " is a " + test + " recording, not Arm");
+    }
+    return unitsPerRotation;
+  }
+
+  private static boolean isTest(String name) {
+    return name.startsWith("slow-") || name.startsWith("fast-");
+  }
+
+  private void readTest(JsonParser parser, double radiansPerUnit, ArmFit fit) throws IOException {
+    boolean hasPrevious = false;
+    double previousTime = 0;
+    double previousVolts = 0;
+    double previousPosition = 0;
+    double previousVelocity = 0;
+    while (parser.nextToken() == JsonToken.START_ARRAY) {
+      double time = nextDouble(parser);
+      double volts = nextDouble(parser);
+      double position = nextDouble(parser) * radiansPerUnit;
+      double velocity = nextDouble(parser) * radiansPerUnit;
+      expect(parser.nextToken(), JsonToken.END_ARRAY);
+
+      double dt = time - previousTime;
+      if (hasPrevious
+          && dt > 0
+          && dt <= kMaxSampleGapSeconds
+          && previousVolts != 0
+          && Math.abs(previousVelocity) >= m_motionThreshold) {
+        double acceleration = (velocity - previousVelocity) / dt;
+        fit.add(previousVolts, previousPosition, previousVelocity, acceleration);
+      }
+      hasPrevious = true;
+      previousTime = time;
+      previousVolts = volts;
+      previousPosition = position;
+      previousVelocity = velocity;
+    }
+  }
+
+  private double nextDouble(JsonParser parser) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_NUMBER_INT) {
+      throw new IOException(m_path + ": expected a number, got " + token);
+    }
+    return parser.getDoubleValue();
+  }
+
+  private void expect(JsonToken actual, JsonToken expected) throws IOException {
+    if (actual != expected) {
+      throw new IOException(m_path + ": expected " + expected + ", got " + actual);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.sysid;
+
+import org.ejml.simple.SimpleMatrix;
+
+/**
+ * Least squares fit of the arm feedforward model, accumulated one sample at a time.
+ *
+ * <p>The model is {@code V = kS sgn(v) + kG cos(theta + offset) + kV v + kA a}, rearranged for
+ * the acceleration so each sample is a row of {@code a = [V, v, sgn(v), cos theta, sin theta] b}.
+ * Only the normal equations are kept, so memory does not grow with the number of samples, and fits
+ * of separate recordings can be combined.
+ */
+public class ArmFit {
+  /** Fewer samples than this are not enough for a meaningful fit. */
+  public static final int kMinSamples = 50;
+
+  private static final int kTerms = 5;
+
+  private final double[][] m_xtx = new double[kTerms][kTerms];
+  private final double[] m_xty = new double[kTerms];
+  private final double[] m_row = new double[kTerms];
+  private double m_yty;
+  private double m_ySum;
+  private long m_samples;
+
+  /**
+   * Add a sample.
+   *
+   * @param volts applied voltage
+   * @param position arm angle in radians
+   * @param velocity arm velocity in radians per second
+   * @param acceleration arm acceleration in radians per second squared
+   */
+  public void add(double volts, double position, double velocity, double acceleration) {
+    m_row[0] = volts;
+    m_row[1] = velocity;
+    m_row[2] = Math.signum(velocity);
+    m_row[3] = Math.cos(position);
+    m_row[4] = Math.sin(position);
+    for (int i = 0; i < kTerms; i++) {
+      m_xty[i] += m_row[i] * acceleration;
+      for (int j = 0; j < kTerms; j++) {
+        m_xtx[i][j] += m_row[i] * m_row[j];
+      }
+    }
+    m_yty += acceleration * acceleration;
+    m_ySum += acceleration;
+    m_samples++;
+  }
+
+  /**
+   * Add every sample of another fit to this one.
+   *
+   * @param other fit to add
+   */
+  public void addAll(ArmFit other) {
+    for (int i = 0; i < kTerms; i++) {
+      m_xty[i] += other.m_xty[i];
+      for (int j = 0; j < kTerms; j++) {
+        m_xtx[i][j] += other.m_xtx[i][j];
+      }
+    }
+    m_yty += other.m_yty;
+    m_ySum += other.m_ySum;
+    m_samples += other.m_samples;
+  }
+
+  public long getSamples() {
+    return m_samples;
+  }
+
+  /**
+   * Solve for the feedforward gains.
+   *
+   * @return fitted gains, without feedback gains
+   * @throws IllegalStateException if there are not enough samples to fit
+   */
+  public ArmGains solve() {
+    if (m_samples < kMinSamples) {
+      throw new IllegalStateException("Not enough samples to fit: " + m_samples);
+    }
+    SimpleMatrix xtx = new SimpleMatrix(m_xtx);
+    SimpleMatrix xty = new SimpleMatrix(kTerms, 1, true, m_xty);
+    SimpleMatrix b = xtx.solve(xty);
+
+    // Residuals from the normal equations: e'e = y'y - 2b'X'y + b'X'Xb
+    double sse = m_yty - 2 * b.dot(xty) + b.transpose().mult(xtx).mult(b).get(0);
+    double sst = m_yty - m_ySum * m_ySum / m_samples;
+
+    double b0 = b.get(0);
+    double kA = 1 / b0;
+    double kV = -b.get(1) / b0;
+    double kS = -b.get(2) / b0;
+    // kG cos(theta + offset) = kG cos(offset) cos theta - kG sin(offset) sin theta
+    double kG = Math.hypot(b.get(3), b.get(4)) / b0;
+    double offset = Math.atan2(b.get(4), -b.get(3));
+    return new ArmGains(
+        kS, kG, kV, kA, offset, 1 - sse / sst, Math.sqrt(Math.max(0, sse) / m_samples), m_samples);
+  }
+}
@@ -0,0 +1,98 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.sysid;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.controller.LinearQuadraticRegulator;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N2;
+import edu.wpi.first.math.system.LinearSystem;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+
+/** Arm gains fitted from a recording, in volts and radians. */
+public class ArmGains {
+  public final double kS;
+  public final double kG;
+  public final double kV;
+  public final double kA;
+  /** Angle to add to the recorded position so that 0 is horizontal, in radians. */
+  public final double offset;
+
+  public final double rSquared;
+  /** Root mean square error of the fitted acceleration, in radians per second squared. */
+  public final double rmse;
+
+  public final long samples;
+
+  public final double kP;
+  public final double kD;
+
+  ArmGains(
+      double kS,
+      double kG,
+      double kV,
+      double kA,
+      double offset,
+      double rSquared,
+      double rmse,
+      long samples) {
+    this(kS, kG, kV, kA, offset, rSquared, rmse, samples, Double.NaN, Double.NaN);
+  }
+
+  private ArmGains(
+      double kS,
+      double kG,
+      double kV,
+      double kA,
+      double offset,
+      double rSquared,
+      double rmse,
+      long samples,
+      double kP,
+      double kD) {
+    this.kS = kS;
+    this.kG = kG;
+    this.kV = kV;
+    this.kA = kA;
+    this.offset = offset;
+    this.rSquared = rSquared;
+    this.rmse = rmse;
+    this.samples = samples;
+    this.kP = kP;
+    this.kD = kD;
+  }
+
+  /**
+   * Compute LQR position feedback gains for the fitted kV and kA.
+   *
+   * @param maxPositionError position error that uses the maximum effort, in radians
+   * @param maxVelocityError velocity error that uses the maximum effort, in radians per second
+   * @param maxEffort maximum control effort in volts
+   * @param periodSeconds controller period
+   * @param delaySeconds measurement delay to compensate for, or 0
+   * @return these gains with kP and kD set
+   */
+  public ArmGains withFeedback(
+      double maxPositionError,
+      double maxVelocityError,
+      double maxEffort,
+      double periodSeconds,
+      double delaySeconds) {
+    LinearSystem<N2, N1, N1> plant = LinearSystemId.identifyPositionSystem(kV, kA);
+    LinearQuadraticRegulator<N2, N1, N1> lqr =
+        new LinearQuadraticRegulator<>(
+            plant,
+            VecBuilder.fill(maxPositionError, maxVelocityError),
+            VecBuilder.fill(maxEffort),
+            periodSeconds);
+    if (delaySeconds > 0) {
+      lqr.latencyCompensate(plant, periodSeconds, delaySeconds);
+    }
+    double kP = lqr.getK().get(0, 0);
+    double kD = lqr.getK().get(0, 1);
+    return new ArmGains(kS, kG, kV, kA, offset, rSquared, rmse, samples, kP, kD);
+  }
+}
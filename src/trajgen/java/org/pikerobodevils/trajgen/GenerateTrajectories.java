@@ -0,0 +1,40 @@
+/* Copyright 2023 Pike RoboDevils, FRC Team 1018
+ * Use of this source code is governed by an MIT-style
+ * license that can be found in the LICENSE.md file or
+ * at https://opensource.org/licenses/MIT. */
+
+package org.pikerobodevils.trajgen;
+
+import edu.wpi.first.math.trajectory.Trajectory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import org.pikerobodevils.frc2023.commands.AutoTrajectories;
+import org.pikerobodevils.lib.trajectory.MappedTrajectory;
+
+/** Writes every trajectory in {@link AutoTrajectories} to the directory given as the argument. */
+public final class GenerateTrajectories {
+  private GenerateTrajectories() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: GenerateTrajectories <output directory>");
+      System.exit(1);
+    }
+    Path outputDirectory = Paths.get(args[0]);
+    Files.createDirectories(outputDirectory);
+
+    for (Map.Entry<String, Trajectory> entry : AutoTrajectories.generateAll().entrySet()) {
+      Path file = outputDirectory.resolve(entry.getKey() + MappedTrajectory.kExtension);
+      MappedTrajectory.write(entry.getValue(), file);
+      System.out.printf(
+          "%s: %d samples, %.2f s -> %s%n",
+          entry.getKey(),
+          entry.getValue().getStates().size(),
+          entry.getValue().getTotalTimeSeconds(),
+          file);
+    }
+  }
+}